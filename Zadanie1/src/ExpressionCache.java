@@ -0,0 +1,84 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ограниченный LRU-кэш скомпилированных выражений.
+ * Ключ - нормализованная строка выражения, значение - результат компиляции.
+ * Счетчики попаданий, промахов и вытеснений позволяют подобрать размер кэша.
+ */
+public class ExpressionCache<V> {
+
+    private final int capacity;
+    private final LinkedHashMap<String, V> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public ExpressionCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер кэша должен быть > 0.");
+        }
+        this.capacity = capacity;
+        // accessOrder = true: порядок обхода соответствует давности использования
+        this.entries = new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                if (size() > ExpressionCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Возвращает значение по ключу или null, если его нет в кэше.
+     */
+    public synchronized V get(String key) {
+        V value = entries.get(key);
+        if (value != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return value;
+    }
+
+    public synchronized void put(String key, V value) {
+        entries.put(key, value);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    // --- Статистика ---
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Кэш выражений: размер " + entries.size() + "/" + capacity
+                + ", попаданий " + hits + ", промахов " + misses + ", вытеснений " + evictions;
+    }
+}
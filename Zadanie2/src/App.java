@@ -1,12 +1,20 @@
-import javax.swing.*;
-
-public class App {
-    public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> {
-            Model model = new Model();
-            View view = new View();
-            Controller controller = new Controller(model, view);
-            view.setVisible(true);
-        });
-    }
+import javax.management.JMException;
+import javax.swing.*;
+
+public class App {
+    public static void main(String[] args) {
+        SwingUtilities.invokeLater(() -> {
+            Model model = new Model();
+            CalculatorMetrics metrics = new CalculatorMetrics();
+            model.setMetrics(metrics);
+            try {
+                metrics.register("main");
+            } catch (JMException e) {
+                System.err.println("Не удалось опубликовать метрики в JMX: " + e);
+            }
+            View view = new View();
+            Controller controller = new Controller(model, view);
+            view.setVisible(true);
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+import javax.swing.*;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Выполняет вычисления в фоновых потоках, чтобы не блокировать поток обработки событий Swing.
+ * Новое вычисление отменяет предыдущее, а вычисление дольше заданного времени прерывается.
+ * Результат передается обработчику в потоке Swing, и только если он относится
+ * к последнему отправленному выражению.
+ */
+public class AsyncEvaluator implements AutoCloseable {
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5_000;
+
+    private final ExecutorService workers = newWorkerExecutor();
+    private final ScheduledExecutorService timer;
+    private final long timeoutMillis;
+    private volatile CalculatorMetrics metrics; // null - тайм-ауты не учитываются
+
+    // Номер последнего отправленного вычисления; результаты более старых отбрасываются
+    private long generation;
+    private Future<?> current;
+
+    public AsyncEvaluator() {
+        this(DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param timeoutMillis Максимальное время одного вычисления в миллисекундах.
+     */
+    public AsyncEvaluator(long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Время ожидания должно быть > 0.");
+        }
+        this.timeoutMillis = timeoutMillis;
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, daemonThreads("calculator-timeout"));
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.timer = scheduler;
+    }
+
+    /**
+     * Подключает учет тайм-аутов в метриках (категория TIMEOUT; null - отключить).
+     */
+    public void setMetrics(CalculatorMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Запускает вычисление, отменяя незавершенное предыдущее.
+     * @param task Вычисление (выполняется в фоновом потоке).
+     * @param onSuccess Обработчик результата (вызывается в потоке Swing).
+     * @param onFailure Обработчик ошибки или таймаута - TimeoutException (вызывается в потоке Swing).
+     */
+    public synchronized <T> void submit(Callable<T> task, Consumer<? super T> onSuccess, Consumer<? super Exception> onFailure) {
+        if (current != null) {
+            current.cancel(true);
+        }
+        long submitted = ++generation;
+        // Ровно один исход на вычисление: результат, ошибка или таймаут
+        AtomicBoolean finished = new AtomicBoolean();
+        AtomicReference<Future<?>> timeout = new AtomicReference<>();
+
+        Future<?> future = workers.submit(() -> {
+            try {
+                T result = task.call();
+                if (finished.compareAndSet(false, true)) {
+                    deliver(submitted, () -> onSuccess.accept(result));
+                }
+            } catch (Exception e) {
+                if (finished.compareAndSet(false, true)) {
+                    deliver(submitted, () -> onFailure.accept(e));
+                }
+            } finally {
+                Future<?> pending = timeout.get();
+                if (pending != null) {
+                    pending.cancel(false);
+                }
+            }
+        });
+        current = future;
+
+        timeout.set(timer.schedule(() -> {
+            if (finished.compareAndSet(false, true)) {
+                // Прерывание останавливает точные вычисления (см. Operations.checkInterrupted);
+                // в любом случае результат уже не будет показан
+                future.cancel(true);
+                TimeoutException error = new TimeoutException("Превышено время вычисления (" + timeoutMillis + " мс).");
+                CalculatorMetrics metrics = this.metrics;
+                if (metrics != null) {
+                    metrics.recordError(error);
+                }
+                deliver(submitted, () -> onFailure.accept(error));
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Отменяет текущее вычисление; его результат не будет передан обработчику.
+     */
+    public synchronized void cancel() {
+        generation++;
+        if (current != null) {
+            current.cancel(true);
+            current = null;
+        }
+    }
+
+    private synchronized boolean isCurrent(long submitted) {
+        return submitted == generation;
+    }
+
+    private void deliver(long submitted, Runnable callback) {
+        // Повторная проверка в потоке Swing: за время передачи могло прийти новое выражение
+        SwingUtilities.invokeLater(() -> {
+            if (isCurrent(submitted)) {
+                callback.run();
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        cancel();
+        workers.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    /**
+     * Виртуальные потоки (Java 21+), если они доступны, иначе пул фоновых потоков-демонов.
+     */
+    private static ExecutorService newWorkerExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(daemonThreads("calculator-worker"));
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,96 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Запуск калькулятора без интерфейса: выражения читаются построчно из файла
+ * или стандартного ввода, результаты выводятся в стандартный вывод в том же порядке.
+ *
+ * Использование: java BatchApp [--mode=double|decimal|integer] [--threads=N] [--mmap [--output=файл]] [файл]
+ *
+ * С ключом --mmap файл отображается в память и обрабатывается по сегментам
+ * (см. {@link MappedFileProcessor}); результаты пишутся в --output или в стандартный вывод.
+ */
+public class BatchApp {
+    public static void main(String[] args) throws Exception {
+        Model.NumericMode mode = Model.NumericMode.DOUBLE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String file = null;
+        String output = null;
+        boolean mapped = false;
+
+        for (String arg : args) {
+            try {
+                if (arg.startsWith("--mode=")) {
+                    mode = Model.NumericMode.valueOf(arg.substring("--mode=".length()).toUpperCase(Locale.ROOT));
+                } else if (arg.startsWith("--threads=")) {
+                    threads = Integer.parseInt(arg.substring("--threads=".length()));
+                } else if (arg.equals("--mmap")) {
+                    mapped = true;
+                } else if (arg.startsWith("--output=")) {
+                    output = arg.substring("--output=".length());
+                } else if (!arg.startsWith("--") && file == null) {
+                    file = arg;
+                } else {
+                    throw new IllegalArgumentException(arg);
+                }
+            } catch (IllegalArgumentException e) {
+                System.err.println("Неверный аргумент: " + arg);
+                printUsage();
+            }
+        }
+        if (mapped && file == null) {
+            System.err.println("Для --mmap нужен входной файл.");
+            printUsage();
+        }
+        if (mapped) {
+            processMapped(file, output, mode, threads);
+            return;
+        }
+
+        long started = System.nanoTime();
+        BatchProcessor processor = new BatchProcessor(Model::new, mode, threads);
+        try (BufferedReader in = file != null
+                ? Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)
+                : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16);
+             Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            processor.process(in, out);
+        } finally {
+            processor.close();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.err.printf("Строк: %d, ошибок: %d, время: %.2f с%n", processor.getLines(), processor.getErrors(), seconds);
+    }
+
+    private static void processMapped(String file, String output, Model.NumericMode mode, int threads) throws Exception {
+        long started = System.nanoTime();
+        MappedFileProcessor processor = new MappedFileProcessor(Model::new, mode, threads);
+        try (WritableByteChannel out = output != null
+                ? FileChannel.open(Paths.get(output), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)
+                : Channels.newChannel(System.out)) {
+            processor.process(Paths.get(file), out);
+        } finally {
+            processor.close();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.err.printf("Строк: %d, ошибок: %d, время: %.2f с, %.0f строк/с, %.1f МБ/с%n",
+                processor.getLines(), processor.getErrors(), seconds,
+                processor.getLines() / seconds, processor.getBytes() / seconds / (1 << 20));
+    }
+
+    private static void printUsage() {
+        System.err.println("Использование: java BatchApp [--mode=double|decimal|integer] [--threads=N] [--mmap [--output=файл]] [файл]");
+        System.exit(2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Пакетное вычисление выражений: одна строка входа - одна строка результата.
+ * Строки читаются блоками и вычисляются пулом потоков, результаты пишутся
+ * в порядке входа. Одновременно в обработке не больше maxInFlight блоков,
+ * поэтому память не зависит от размера входного файла.
+ *
+ * Результат строки - число или "Ошибка: <сообщение>"; пустая строка дает пустую строку.
+ */
+public class BatchProcessor implements AutoCloseable {
+
+    public static final int DEFAULT_CHUNK_LINES = 1024;
+
+    // У каждого потока своя модель: общий кэш выражений синхронизирован и стал бы узким местом
+    private final ThreadLocal<Model> models;
+    private final Queue<Model> created = new ConcurrentLinkedQueue<>();
+    private final Model.NumericMode mode;
+    private final int chunkLines;
+    private final int maxInFlight;
+    private final ExecutorService workers;
+
+    private long lines;
+    private long errors;
+
+    /**
+     * @param modelFactory Создает модель для каждого потока вычисления.
+     * @param threads Количество потоков вычисления.
+     */
+    public BatchProcessor(Supplier<Model> modelFactory, Model.NumericMode mode, int threads) {
+        this(modelFactory, mode, threads, DEFAULT_CHUNK_LINES);
+    }
+
+    public BatchProcessor(Supplier<Model> modelFactory, Model.NumericMode mode, int threads, int chunkLines) {
+        if (threads <= 0 || chunkLines <= 0) {
+            throw new IllegalArgumentException("Количество потоков и размер блока должны быть > 0.");
+        }
+        this.models = ThreadLocal.withInitial(() -> {
+            Model model = modelFactory.get();
+            created.add(model);
+            return model;
+        });
+        this.mode = mode;
+        this.chunkLines = chunkLines;
+        // Пока пишется самый старый блок, остальные потоки заняты следующими
+        this.maxInFlight = threads * 2;
+        this.workers = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Вычисляет все строки входа и пишет результаты в out (не закрывая его).
+     */
+    public void process(BufferedReader in, Writer out) throws IOException, InterruptedException {
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+        String[] chunk;
+        while ((chunk = readChunk(in)) != null) {
+            if (pending.size() >= maxInFlight) {
+                write(pending.poll(), out);
+            }
+            String[] expressions = chunk;
+            pending.add(workers.submit(() -> evaluate(expressions)));
+        }
+        while (!pending.isEmpty()) {
+            write(pending.poll(), out);
+        }
+        out.flush();
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+        // Модели потоков подписаны на реестр функций, который может пережить обработчик
+        Model model;
+        while ((model = created.poll()) != null) {
+            model.release();
+        }
+    }
+
+    private String[] readChunk(BufferedReader in) throws IOException {
+        String[] chunk = new String[chunkLines];
+        int count = 0;
+        String line;
+        while (count < chunkLines && (line = in.readLine()) != null) {
+            chunk[count++] = line;
+        }
+        if (count == 0) {
+            return null;
+        }
+        return count == chunkLines ? chunk : Arrays.copyOf(chunk, count);
+    }
+
+    private Chunk evaluate(String[] expressions) {
+        Model model = models.get();
+        String[] results = new String[expressions.length];
+        int failed = 0;
+        for (int i = 0; i < expressions.length; i++) {
+            if (expressions[i].trim().isEmpty()) {
+                results[i] = "";
+                continue;
+            }
+            try {
+                results[i] = format(model.calculateNumber(expressions[i], mode));
+            } catch (Exception e) {
+                results[i] = "Ошибка: " + e.getMessage();
+                failed++;
+            }
+        }
+        return new Chunk(results, failed);
+    }
+
+    private void write(Future<Chunk> future, Writer out) throws IOException, InterruptedException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка в потоке вычисления.", e.getCause());
+        }
+        for (String result : chunk.results) {
+            out.write(result);
+            out.write('\n');
+        }
+        lines += chunk.results.length;
+        errors += chunk.errors;
+    }
+
+    /**
+     * Полная запись числа: целые double без дробной части, точные режимы без экспоненты.
+     */
+    static String format(Number result) {
+        if (result instanceof BigDecimal) {
+            BigDecimal value = ((BigDecimal) result).stripTrailingZeros();
+            return value.signum() == 0 ? "0" : value.toPlainString();
+        }
+        if (result instanceof Double) {
+            double value = result.doubleValue();
+            if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                return Long.toString((long) value);
+            }
+        }
+        return result.toString();
+    }
+
+    private static final class Chunk {
+        final String[] results;
+        final int errors;
+
+        Chunk(String[] results, int errors) {
+            this.results = results;
+            this.errors = errors;
+        }
+    }
+}
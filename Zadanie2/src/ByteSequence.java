@@ -0,0 +1,58 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Строка поверх байтов буфера (например, отображенного в память файла) без копирования.
+ * Каждый байт считается символом, поэтому последовательность подходит только для ASCII-строк:
+ * строки с другими байтами нужно декодировать (см. {@link MappedFileProcessor}), иначе
+ * многобайтовый символ UTF-8 попадет в сообщение об ошибке как несколько символов Latin-1.
+ * Границы меняются методом {@link #reset}, поэтому один объект служит для всех строк файла.
+ */
+public final class ByteSequence implements CharSequence {
+
+    private final ByteBuffer buffer;
+    private int offset;
+    private int length;
+
+    public ByteSequence(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Переключает последовательность на байты [from, to) буфера.
+     */
+    public ByteSequence reset(int from, int to) {
+        this.offset = from;
+        this.length = to - from;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return (char) (buffer.get(offset + index) & 0xFF);
+    }
+
+    /**
+     * Создает строку: используется только для имен, сообщений об ошибках и длинных чисел.
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = charAt(i);
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+}
@@ -0,0 +1,390 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Генерирует для скомпилированной программы отдельный JVM-класс, реализующий
+ * {@link DoubleEvaluator}, и загружает его как скрытый класс (Lookup.defineHiddenClass).
+ * Стековая машина {@link Program} переводится в байткод JVM один к одному,
+ * после чего JIT может скомпилировать и встроить вычисление целиком.
+ * Ячейки общих подвыражений становятся локальными переменными метода.
+ * Внешние библиотеки не используются: class-файл собирается вручную.
+ */
+public final class BytecodeGenerator {
+
+    private static final String CLASS_NAME = "GeneratedEvaluator";
+    private static final String OPERATIONS = "Operations";
+    private static final String MATH = "java/lang/Math";
+    private static final String FUNCTION = "CalculatorFunction";
+    private static final String FUNCTIONS_FIELD = "functions";
+    private static final String FUNCTIONS_DESCRIPTOR = "[LCalculatorFunction;";
+    private static final String MEMO = "PureCallMemo";
+    private static final String MEMO_FIELD = "memo";
+    private static final String MEMO_DESCRIPTOR = "LPureCallMemo;";
+    // Локальные 0-1 - this и массив переменных, 2-5 - аргументы вызова функции, дальше - ячейки
+    private static final int FIRST_SLOT_LOCAL = 6;
+
+    // Формат class-файла Java 8: без ветвлений в коде таблица StackMapTable не нужна
+    private static final int CLASS_VERSION = 52;
+
+    // Опкоды JVM
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int AALOAD = 0x32;
+    private static final int DLOAD = 0x18;
+    private static final int DSTORE = 0x39;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC2_W = 0x14;
+    private static final int DALOAD = 0x31;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DNEG = 0x77;
+    private static final int DUP2 = 0x5c;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+
+    private BytecodeGenerator() {
+    }
+
+    /**
+     * Генерирует вычислитель для программы.
+     * @return Вычислитель или null, если генерация недоступна (JDK без скрытых классов,
+     * неподдерживаемый опкод, функция с тремя и более аргументами и т.п.) - тогда используется интерпретатор
+     * (см. {@link CompiledExpression#isGenerated()}). Каждый вызов определяет новый класс, поэтому
+     * вычислитель для программы следует брать из {@link Program#getGenerated()}.
+     */
+    public static DoubleEvaluator tryGenerate(Program program) {
+        try {
+            return generate(program);
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            return null;
+        }
+    }
+
+    static DoubleEvaluator generate(Program program) throws ReflectiveOperationException {
+        byte[] classBytes = new ClassWriter(program).toByteArray();
+        MethodHandles.Lookup lookup = defineHiddenClass(classBytes);
+        try {
+            // Функции из реестра и кэш log/exp передаются в конструктор и вызываются по прямым ссылкам
+            return (DoubleEvaluator) lookup.findConstructor(lookup.lookupClass(),
+                    MethodType.methodType(void.class, CalculatorFunction[].class, PureCallMemo.class))
+                    .invoke(program.getFunctions(), program.getMemo());
+        } catch (ReflectiveOperationException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Lookup.defineHiddenClass появился в JDK 15, поэтому вызывается через отражение:
+     * на более старых JDK генерация просто недоступна.
+     */
+    private static MethodHandles.Lookup defineHiddenClass(byte[] classBytes) throws ReflectiveOperationException {
+        Class<?> optionClass = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+        Object noOptions = Array.newInstance(optionClass, 0);
+        Method define = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class, noOptions.getClass());
+        return (MethodHandles.Lookup) define.invoke(MethodHandles.lookup(), classBytes, true, noOptions);
+    }
+
+    /**
+     * Сборщик class-файла с пулом констант.
+     */
+    private static final class ClassWriter {
+        private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+        private final DataOutputStream pool = new DataOutputStream(poolBytes);
+        private final Map<String, Integer> poolIndex = new HashMap<>();
+        private int poolCount = 1;
+
+        private final Program program;
+
+        ClassWriter(Program program) {
+            this.program = program;
+        }
+
+        byte[] toByteArray() {
+            try {
+                int thisClass = classRef(CLASS_NAME);
+                int superClass = classRef("java/lang/Object");
+                int iface = classRef("DoubleEvaluator");
+                int objectInit = methodRef("java/lang/Object", "<init>", "()V");
+                int functionsField = fieldRef(CLASS_NAME, FUNCTIONS_FIELD, FUNCTIONS_DESCRIPTOR);
+                int memoField = fieldRef(CLASS_NAME, MEMO_FIELD, MEMO_DESCRIPTOR);
+                int codeName = utf8("Code");
+                int initName = utf8("<init>");
+                int initDesc = utf8("(" + FUNCTIONS_DESCRIPTOR + MEMO_DESCRIPTOR + ")V");
+                int fieldName = utf8(FUNCTIONS_FIELD);
+                int fieldDesc = utf8(FUNCTIONS_DESCRIPTOR);
+                int memoName = utf8(MEMO_FIELD);
+                int memoDesc = utf8(MEMO_DESCRIPTOR);
+                int evalName = utf8("evaluate");
+                int evalDesc = utf8("([D)D");
+                byte[] evalCode = translate(functionsField, memoField);
+
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(0xCAFEBABE);
+                out.writeShort(0);
+                out.writeShort(CLASS_VERSION);
+                out.writeShort(poolCount);
+                pool.flush();
+                poolBytes.writeTo(out);
+                out.writeShort(0x0031); // ACC_PUBLIC | ACC_FINAL | ACC_SUPER
+                out.writeShort(thisClass);
+                out.writeShort(superClass);
+                out.writeShort(1);
+                out.writeShort(iface);
+
+                out.writeShort(2); // поля
+                out.writeShort(0x0012); // ACC_PRIVATE | ACC_FINAL
+                out.writeShort(fieldName);
+                out.writeShort(fieldDesc);
+                out.writeShort(0);
+                out.writeShort(0x0012);
+                out.writeShort(memoName);
+                out.writeShort(memoDesc);
+                out.writeShort(0);
+
+                out.writeShort(2); // методы
+                byte[] initCode = {
+                        (byte) ALOAD_0, (byte) INVOKESPECIAL, (byte) (objectInit >> 8), (byte) objectInit,
+                        (byte) ALOAD_0, (byte) ALOAD_1, (byte) PUTFIELD, (byte) (functionsField >> 8), (byte) functionsField,
+                        (byte) ALOAD_0, (byte) ALOAD_2, (byte) PUTFIELD, (byte) (memoField >> 8), (byte) memoField,
+                        (byte) RETURN};
+                writeMethod(out, initName, initDesc, codeName, 2, 3, initCode);
+                // double занимает два слота стека; еще четыре - под ссылки и индекс при загрузке
+                // переменной или функции
+                writeMethod(out, evalName, evalDesc, codeName, program.getOperandDepth() * 2 + 4,
+                        FIRST_SLOT_LOCAL + 2 * program.getSlotCount(), evalCode);
+
+                out.writeShort(0); // атрибуты класса
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Переводит код стековой машины в байткод метода evaluate([D)D.
+         */
+        private byte[] translate(int functionsField, int memoField) throws IOException {
+            int[] code = program.getCode();
+            double[] constants = program.getConstants();
+            boolean memo = program.getMemo() != null;
+            if (program.getOutputCount() != 1) {
+                throw new UnsupportedOperationException("Программы с несколькими результатами не поддерживаются генератором.");
+            }
+            if (FIRST_SLOT_LOCAL + 2 * program.getSlotCount() > 0xFF) {
+                throw new UnsupportedOperationException("Слишком много общих подвыражений для генератора: " + program.getSlotCount());
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            int pc = 0;
+            while (pc < code.length) {
+                int opcode = code[pc++];
+                switch (opcode) {
+                    case Program.PUSH:
+                        out.writeByte(LDC2_W);
+                        out.writeShort(doubleConstant(constants[code[pc++]]));
+                        break;
+                    case Program.LOAD:
+                        out.writeByte(ALOAD_1);
+                        pushInt(out, code[pc++]);
+                        out.writeByte(DALOAD);
+                        break;
+                    case Program.ADD: out.writeByte(DADD); break;
+                    case Program.SUB: out.writeByte(DSUB); break;
+                    case Program.MUL: out.writeByte(DMUL); break;
+                    case Program.NEG: out.writeByte(DNEG); break;
+                    case Program.DIV: invokeStatic(out, OPERATIONS, "divide", "(DD)D"); break;
+                    case Program.IDIV: invokeStatic(out, OPERATIONS, "integerDivide", "(DD)D"); break;
+                    case Program.POW: invokeStatic(out, MATH, "pow", "(DD)D"); break;
+                    case Program.FACT: invokeStatic(out, OPERATIONS, "factorial", "(D)D"); break;
+                    case Program.LOG:
+                        if (memo) invokeMemo(out, memoField, "log2");
+                        else invokeStatic(out, OPERATIONS, "log2", "(D)D");
+                        break;
+                    case Program.EXP:
+                        if (memo) invokeMemo(out, memoField, "exp");
+                        else invokeStatic(out, MATH, "exp", "(D)D");
+                        break;
+                    case Program.CALL: call(out, functionsField, code[pc++]); break;
+                    case Program.STORE:
+                        out.writeByte(DUP2);
+                        out.writeByte(DSTORE);
+                        out.writeByte(FIRST_SLOT_LOCAL + 2 * code[pc++]);
+                        break;
+                    case Program.FETCH:
+                        out.writeByte(DLOAD);
+                        out.writeByte(FIRST_SLOT_LOCAL + 2 * code[pc++]);
+                        break;
+                    default:
+                        throw new UnsupportedOperationException("Опкод " + opcode + " не поддерживается генератором.");
+                }
+            }
+            out.writeByte(DRETURN);
+            return bytes.toByteArray();
+        }
+
+        /**
+         * Вызов функции из реестра: аргументы со стека сохраняются в локальные переменные,
+         * затем загружается ссылка на функцию и аргументы возвращаются на стек.
+         */
+        private void call(DataOutputStream out, int functionsField, int functionIndex) throws IOException {
+            CalculatorFunction function = program.getFunctions()[functionIndex];
+            int arity = function.getArity();
+            if (arity > 2) {
+                throw new UnsupportedOperationException("Функции с " + arity + " аргументами не поддерживаются генератором.");
+            }
+            for (int i = arity - 1; i >= 0; i--) {
+                out.writeByte(DSTORE);
+                out.writeByte(2 + 2 * i);
+            }
+            out.writeByte(ALOAD_0);
+            out.writeByte(GETFIELD);
+            out.writeShort(functionsField);
+            pushInt(out, functionIndex);
+            out.writeByte(AALOAD);
+            for (int i = 0; i < arity; i++) {
+                out.writeByte(DLOAD);
+                out.writeByte(2 + 2 * i);
+            }
+            String descriptor = arity == 0 ? "()D" : arity == 1 ? "(D)D" : "(DD)D";
+            out.writeByte(INVOKEVIRTUAL);
+            out.writeShort(methodRef(FUNCTION, "apply", descriptor));
+        }
+
+        /**
+         * Вызов log2 или exp через кэш программы: аргумент временно сохраняется,
+         * чтобы под него положить ссылку на кэш.
+         */
+        private void invokeMemo(DataOutputStream out, int memoField, String name) throws IOException {
+            out.writeByte(DSTORE);
+            out.writeByte(2);
+            out.writeByte(ALOAD_0);
+            out.writeByte(GETFIELD);
+            out.writeShort(memoField);
+            out.writeByte(DLOAD);
+            out.writeByte(2);
+            out.writeByte(INVOKEVIRTUAL);
+            out.writeShort(methodRef(MEMO, name, "(D)D"));
+        }
+
+        private void writeMethod(DataOutputStream out, int name, int descriptor, int codeName,
+                                 int maxStack, int maxLocals, byte[] code) throws IOException {
+            out.writeShort(0x0001); // ACC_PUBLIC
+            out.writeShort(name);
+            out.writeShort(descriptor);
+            out.writeShort(1);
+            out.writeShort(codeName);
+            out.writeInt(12 + code.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.length);
+            out.write(code);
+            out.writeShort(0); // таблица исключений
+            out.writeShort(0); // атрибуты кода
+        }
+
+        private void invokeStatic(DataOutputStream out, String owner, String name, String descriptor) throws IOException {
+            out.writeByte(INVOKESTATIC);
+            out.writeShort(methodRef(owner, name, descriptor));
+        }
+
+        private void pushInt(DataOutputStream out, int value) throws IOException {
+            if (value <= 5) {
+                out.writeByte(ICONST_0 + value);
+            } else if (value <= Byte.MAX_VALUE) {
+                out.writeByte(BIPUSH);
+                out.writeByte(value);
+            } else {
+                out.writeByte(SIPUSH);
+                out.writeShort(value);
+            }
+        }
+
+        // --- Пул констант ---
+
+        private int utf8(String value) throws IOException {
+            Integer index = poolIndex.get("U" + value);
+            if (index != null) return index;
+            pool.writeByte(1);
+            pool.writeUTF(value);
+            return register("U" + value, 1);
+        }
+
+        private int classRef(String internalName) throws IOException {
+            Integer index = poolIndex.get("C" + internalName);
+            if (index != null) return index;
+            int name = utf8(internalName);
+            pool.writeByte(7);
+            pool.writeShort(name);
+            return register("C" + internalName, 1);
+        }
+
+        private int methodRef(String owner, String name, String descriptor) throws IOException {
+            String key = "M" + owner + "." + name + descriptor;
+            Integer index = poolIndex.get(key);
+            if (index != null) return index;
+            int ownerIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            pool.writeByte(12); // NameAndType
+            pool.writeShort(nameIndex);
+            pool.writeShort(descriptorIndex);
+            int nameAndType = poolCount++;
+            pool.writeByte(10); // Methodref
+            pool.writeShort(ownerIndex);
+            pool.writeShort(nameAndType);
+            return register(key, 1);
+        }
+
+        private int fieldRef(String owner, String name, String descriptor) throws IOException {
+            String key = "F" + owner + "." + name + ":" + descriptor;
+            Integer index = poolIndex.get(key);
+            if (index != null) return index;
+            int ownerIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            pool.writeByte(12); // NameAndType
+            pool.writeShort(nameIndex);
+            pool.writeShort(descriptorIndex);
+            int nameAndType = poolCount++;
+            pool.writeByte(9); // Fieldref
+            pool.writeShort(ownerIndex);
+            pool.writeShort(nameAndType);
+            return register(key, 1);
+        }
+
+        private int doubleConstant(double value) throws IOException {
+            String key = "D" + Double.doubleToRawLongBits(value);
+            Integer index = poolIndex.get(key);
+            if (index != null) return index;
+            pool.writeByte(6);
+            pool.writeDouble(value);
+            return register(key, 2); // double занимает две ячейки пула
+        }
+
+        private int register(String key, int slots) {
+            int index = poolCount;
+            poolCount += slots;
+            poolIndex.put(key, index);
+            return index;
+        }
+    }
+}
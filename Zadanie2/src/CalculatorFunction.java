@@ -0,0 +1,125 @@
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Функция калькулятора: имя, количество аргументов, признак чистоты и реализация.
+ * Реализация бывает трех видов:
+ * встроенная (log, exp - отдельные опкоды стековой машины),
+ * внешняя (код на Java, вызывается по прямой ссылке из скомпилированной программы)
+ * и выражение вида f(x)=x^2+1, которое компилятор подставляет на место вызова.
+ *
+ * Чистая функция зависит только от аргументов, поэтому ее вызов от констант
+ * вычисляется при компиляции. Реализации должны быть потокобезопасны.
+ */
+public final class CalculatorFunction {
+
+    /**
+     * Реализация с произвольным числом аргументов: аргументы лежат в args начиная с offset.
+     */
+    public interface Implementation {
+        double apply(double[] args, int offset);
+    }
+
+    private final String name;
+    private final int arity;
+    private final boolean pure;
+    private final int opcode;              // Опкод встроенной функции или Program.CALL
+    private final DoubleUnaryOperator unary;
+    private final DoubleBinaryOperator binary;
+    private final Implementation general;
+    private final String[] parameters;     // Параметры функции-выражения
+    private final Node body;
+
+    private CalculatorFunction(String name, int arity, boolean pure, int opcode, DoubleUnaryOperator unary,
+                               DoubleBinaryOperator binary, Implementation general, String[] parameters, Node body) {
+        if (name == null || name.isEmpty() || !Character.isLetter(name.charAt(0))) {
+            throw new IllegalArgumentException("Имя функции должно начинаться с буквы: " + name);
+        }
+        if (arity < 0) {
+            throw new IllegalArgumentException("Количество аргументов должно быть >= 0.");
+        }
+        this.name = name;
+        this.arity = arity;
+        this.pure = pure;
+        this.opcode = opcode;
+        this.unary = unary;
+        this.binary = binary;
+        this.general = general;
+        this.parameters = parameters;
+        this.body = body;
+    }
+
+    // --- Фабричные методы ---
+
+    public static CalculatorFunction unary(String name, boolean pure, DoubleUnaryOperator implementation) {
+        return new CalculatorFunction(name, 1, pure, Program.CALL, implementation, null, null, null, null);
+    }
+
+    public static CalculatorFunction binary(String name, boolean pure, DoubleBinaryOperator implementation) {
+        return new CalculatorFunction(name, 2, pure, Program.CALL, null, implementation, null, null, null);
+    }
+
+    public static CalculatorFunction of(String name, int arity, boolean pure, Implementation implementation) {
+        return new CalculatorFunction(name, arity, pure, Program.CALL, null, null, implementation, null, null);
+    }
+
+    /**
+     * Функция, заданная выражением над параметрами; вызовы подставляются при разборе.
+     */
+    static CalculatorFunction expression(String name, String[] parameters, Node body) {
+        return new CalculatorFunction(name, parameters.length, true, Program.CALL, null, null, null, parameters.clone(), body);
+    }
+
+    /**
+     * Встроенная унарная функция, вычисляемая отдельным опкодом стековой машины.
+     */
+    static CalculatorFunction intrinsic(String name, int opcode) {
+        return new CalculatorFunction(name, 1, true, opcode, null, null, null, null, null);
+    }
+
+    // --- Вызов ---
+
+    public double apply() {
+        return apply(new double[0], 0);
+    }
+
+    public double apply(double x) {
+        if (unary != null) return unary.applyAsDouble(x);
+        return apply(new double[]{x}, 0);
+    }
+
+    public double apply(double x, double y) {
+        if (binary != null) return binary.applyAsDouble(x, y);
+        return apply(new double[]{x, y}, 0);
+    }
+
+    /**
+     * Вызывает функцию с аргументами args[offset .. offset + arity).
+     */
+    public double apply(double[] args, int offset) {
+        if (unary != null) return unary.applyAsDouble(args[offset]);
+        if (binary != null) return binary.applyAsDouble(args[offset], args[offset + 1]);
+        if (general != null) return general.apply(args, offset);
+        if (isIntrinsic()) return Operations.apply(opcode, args[offset]);
+        throw new IllegalStateException("Функция " + name + " подставляется при компиляции и не вызывается напрямую.");
+    }
+
+    // --- Getters ---
+
+    public String getName() { return name; }
+    public int getArity() { return arity; }
+    public boolean isPure() { return pure; }
+    public boolean isIntrinsic() { return opcode != Program.CALL; }
+    public boolean isExpression() { return body != null; }
+    int getOpcode() { return opcode; }
+    Node getBody() { return body; }
+    String[] getParameters() { return parameters.clone(); }
+
+    @Override
+    public String toString() {
+        if (parameters != null) {
+            return name + "(" + String.join(", ", parameters) + ") = " + body;
+        }
+        return name + "/" + arity;
+    }
+}
@@ -0,0 +1,203 @@
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Метрики вычисления выражений: время фаз (лексический анализ, разбор, оптимизация,
+ * компиляция, вычисление), гистограммы длины выражений и задержки, счетчики ошибок по категориям.
+ * Подключается к модели через {@link Model#setMetrics(CalculatorMetrics)} и публикуется
+ * в платформенном MBeanServer, откуда ее читают jconsole и системы мониторинга.
+ * Все счетчики потокобезопасны и не блокируют вычисляющие потоки.
+ */
+public final class CalculatorMetrics implements CalculatorMetricsMXBean {
+
+    public enum Phase {
+        LEX,
+        PARSE,
+        OPTIMIZE,
+        COMPILE,
+        EVALUATE
+    }
+
+    public enum ErrorCategory {
+        DIVISION_BY_ZERO,
+        BRACKETS,         // Непарные скобки
+        TOO_MANY_TERMS,   // Превышено ограничение на количество слагаемых
+        SYNTAX,           // Прочие синтаксические ошибки
+        DOMAIN,           // log от неположительного числа, факториал дробного и т.п.
+        UNKNOWN_VARIABLE,
+        CANCELLED,        // Вычисление прервано (новым выражением или по тайм-ауту)
+        TIMEOUT,          // Фоновое вычисление не уложилось в отведенное время (см. AsyncEvaluator)
+        OTHER
+    }
+
+    private static final String DOMAIN_NAME = "calculator";
+
+    private final LongAdder calculations = new LongAdder();
+    private final Histogram latency = new Histogram();
+    private final Histogram expressionLength = new Histogram();
+    private final Map<Phase, Histogram> phases = new EnumMap<>(Phase.class);
+    private final Map<ErrorCategory, LongAdder> errors = new EnumMap<>(ErrorCategory.class);
+    private volatile ObjectName registeredName;
+
+    public CalculatorMetrics() {
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new Histogram());
+        }
+        for (ErrorCategory category : ErrorCategory.values()) {
+            errors.put(category, new LongAdder());
+        }
+    }
+
+    // --- Запись ---
+
+    public void recordPhase(Phase phase, long nanos) {
+        phases.get(phase).record(nanos);
+    }
+
+    /**
+     * Завершенное вычисление выражения (успешное или с ошибкой).
+     */
+    public void recordCalculation(int length, long nanos) {
+        calculations.increment();
+        expressionLength.record(length);
+        latency.record(nanos);
+    }
+
+    public void recordError(Throwable error) {
+        errors.get(categorize(error)).increment();
+    }
+
+    /**
+     * Относит ошибку к категории по ее типу (для ParseException - по виду ошибки).
+     */
+    public static ErrorCategory categorize(Throwable error) {
+        if (error instanceof ParseException) {
+            switch (((ParseException) error).getKind()) {
+                case BRACKETS: return ErrorCategory.BRACKETS;
+                case TOO_MANY_TERMS: return ErrorCategory.TOO_MANY_TERMS;
+                default: return ErrorCategory.SYNTAX;
+            }
+        }
+        if (error instanceof DivisionByZeroException) {
+            return ErrorCategory.DIVISION_BY_ZERO;
+        }
+        if (error instanceof ArithmeticException) {
+            return ErrorCategory.DOMAIN;
+        }
+        if (error instanceof CancellationException) {
+            return ErrorCategory.CANCELLED;
+        }
+        if (error instanceof TimeoutException) {
+            return ErrorCategory.TIMEOUT;
+        }
+        if (error instanceof UnknownVariableException) {
+            return ErrorCategory.UNKNOWN_VARIABLE;
+        }
+        return ErrorCategory.OTHER;
+    }
+
+    // --- JMX ---
+
+    /**
+     * Регистрирует метрики в платформенном MBeanServer под именем calculator:type=Metrics,name=...
+     * @param name Имя экземпляра (например, "main"), чтобы различать несколько моделей.
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName(DOMAIN_NAME + ":type=Metrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        registeredName = objectName;
+        return objectName;
+    }
+
+    public void unregister() throws JMException {
+        ObjectName objectName = registeredName;
+        if (objectName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            registeredName = null;
+        }
+    }
+
+    @Override
+    public long getCalculations() {
+        return calculations.sum();
+    }
+
+    @Override
+    public Histogram.Snapshot getLatencyNanos() {
+        return latency.snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getExpressionLength() {
+        return expressionLength.snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getLexNanos() {
+        return phases.get(Phase.LEX).snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getParseNanos() {
+        return phases.get(Phase.PARSE).snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getOptimizeNanos() {
+        return phases.get(Phase.OPTIMIZE).snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getCompileNanos() {
+        return phases.get(Phase.COMPILE).snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getEvaluateNanos() {
+        return phases.get(Phase.EVALUATE).snapshot();
+    }
+
+    @Override
+    public Map<String, Long> getErrors() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<ErrorCategory, LongAdder> entry : errors.entrySet()) {
+            result.put(entry.getKey().name(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    public long getErrors(ErrorCategory category) {
+        return errors.get(category).sum();
+    }
+
+    @Override
+    public void reset() {
+        calculations.reset();
+        latency.reset();
+        expressionLength.reset();
+        phases.values().forEach(Histogram::reset);
+        errors.values().forEach(LongAdder::reset);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("Вычислений: ").append(getCalculations())
+                .append("\nЗадержка, нс: ").append(getLatencyNanos())
+                .append("\nДлина выражения: ").append(getExpressionLength());
+        for (Phase phase : Phase.values()) {
+            text.append("\n").append(phase).append(", нс: ").append(phases.get(phase).snapshot());
+        }
+        return text.append("\nОшибки: ").append(getErrors()).toString();
+    }
+}
@@ -0,0 +1,33 @@
+import java.util.Map;
+
+/**
+ * JMX-интерфейс метрик калькулятора (см. {@link CalculatorMetrics}).
+ * Времена фаз - в наносекундах, длина выражения - в символах.
+ */
+public interface CalculatorMetricsMXBean {
+
+    /** Количество вызовов calculate и calculateNumber. */
+    long getCalculations();
+
+    /** Полное время вычисления одного выражения, включая разбор или поиск в кэше. */
+    Histogram.Snapshot getLatencyNanos();
+
+    Histogram.Snapshot getExpressionLength();
+
+    // Фазы компиляции измеряются только при промахе кэша выражений
+    Histogram.Snapshot getLexNanos();
+
+    Histogram.Snapshot getParseNanos();
+
+    Histogram.Snapshot getOptimizeNanos();
+
+    Histogram.Snapshot getCompileNanos();
+
+    Histogram.Snapshot getEvaluateNanos();
+
+    /** Количество ошибок по категориям (имена из {@link CalculatorMetrics.ErrorCategory}). */
+    Map<String, Long> getErrors();
+
+    /** Обнуляет все счетчики и гистограммы. */
+    void reset();
+}
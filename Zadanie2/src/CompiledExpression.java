@@ -0,0 +1,141 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Выражение с именованными переменными, скомпилированное один раз
+ * для многократного вычисления, в том числе пакетного - по столбцам double[].
+ * Объект неизменяем; вычисления из разных потоков независимы.
+ */
+public class CompiledExpression {
+
+    private final String source;
+    private final Program program;
+    // Сгенерированный класс-вычислитель; null - выражение выполняет интерпретатор
+    private final DoubleEvaluator generated;
+
+    CompiledExpression(String source, Program program) {
+        this(source, program, null);
+    }
+
+    CompiledExpression(String source, Program program, DoubleEvaluator generated) {
+        this.source = source;
+        this.program = program;
+        this.generated = generated;
+    }
+
+    /**
+     * Вычисляет выражение для одного набора значений.
+     * @param values Значения переменных в порядке {@link #getVariables()}.
+     */
+    public double evaluate(double... values) {
+        checkArity(values.length);
+        if (generated != null) {
+            return generated.evaluate(values);
+        }
+        return program.evaluate(values, new double[program.getMaxStackDepth()]);
+    }
+
+    /**
+     * Вычисляет выражение для каждой строки столбцов и записывает результаты в out.
+     * @param columns Столбцы значений в порядке {@link #getVariables()}.
+     * @param out Массив для результатов, его длина задает количество строк.
+     */
+    public void evaluate(double[][] columns, double[] out) {
+        evaluate(columns, out, 0, out.length);
+    }
+
+    /**
+     * Пакетное вычисление со столбцами, заданными по имени переменной.
+     */
+    public void evaluate(Map<String, double[]> columns, double[] out) {
+        evaluate(columnsOf(columns), out);
+    }
+
+    /**
+     * Вычисляет выражение для строк [from, to). Стек и буфер строки выделяются
+     * один раз на весь диапазон, сам цикл по строкам ничего не аллоцирует.
+     */
+    public void evaluate(double[][] columns, double[] out, int from, int to) {
+        checkArity(columns.length);
+        for (double[] column : columns) {
+            if (column.length < to) {
+                throw new IllegalArgumentException("Столбец короче диапазона вычисления (" + column.length + " < " + to + ").");
+            }
+        }
+        double[] row = new double[columns.length];
+        double[] stack = new double[program.getMaxStackDepth()];
+        for (int i = from; i < to; i++) {
+            for (int v = 0; v < row.length; v++) {
+                row[v] = columns[v][i];
+            }
+            out[i] = generated != null ? generated.evaluate(row) : program.evaluate(row, stack);
+        }
+    }
+
+    /**
+     * Упорядочивает столбцы, заданные по имени, в порядке переменных выражения.
+     */
+    public double[][] columnsOf(Map<String, double[]> columns) {
+        String[] variables = program.getVariables();
+        double[][] ordered = new double[variables.length][];
+        for (int v = 0; v < variables.length; v++) {
+            ordered[v] = columns.get(variables[v]);
+            if (ordered[v] == null) {
+                throw new IllegalArgumentException("Не задан столбец для переменной " + variables[v]);
+            }
+        }
+        return ordered;
+    }
+
+    public List<String> getVariables() {
+        return Arrays.asList(program.getVariables());
+    }
+
+    /**
+     * Сколько узлов дерева выражения удалил оптимизатор (свертка констант, тождества).
+     */
+    public int getEliminatedNodes() {
+        return program.getEliminatedNodes();
+    }
+
+    /**
+     * Сколько узлов не вычисляется при каждом вычислении благодаря общим подвыражениям.
+     */
+    public int getSharedNodes() {
+        return program.getSharedNodes();
+    }
+
+    /**
+     * Статистика кэша log/exp или null, если выражение их не содержит.
+     */
+    public PureCallMemo getMemo() {
+        return program.getMemo();
+    }
+
+    /**
+     * true, если выражение вычисляется сгенерированным классом, а не интерпретатором.
+     */
+    public boolean isGenerated() {
+        return generated != null;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    Program getProgram() {
+        return program;
+    }
+
+    private void checkArity(int count) {
+        if (count != program.getVariableCount()) {
+            throw new IllegalArgumentException("Ожидается значений переменных: " + program.getVariableCount() + " (передано: " + count + ").");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return source + " " + getVariables();
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Выражение вместе с частными производными по выбранным переменным,
+ * скомпилированное в одну программу: значение и градиент вычисляются за один проход,
+ * а общие для них подвыражения (например, exp(x/2) в значении и производной) - один раз.
+ * Объект неизменяем; вычисления из разных потоков независимы.
+ */
+public class CompiledGradient {
+
+    private final String source;
+    private final Program program;
+    private final String[] differentiationVariables;
+    private final Node[] derivatives;
+
+    CompiledGradient(String source, Program program, String[] differentiationVariables, Node[] derivatives) {
+        this.source = source;
+        this.program = program;
+        this.differentiationVariables = differentiationVariables;
+        this.derivatives = derivatives;
+    }
+
+    /**
+     * Вычисляет значение выражения и градиент.
+     * @param values Значения переменных в порядке {@link #getVariables()}.
+     * @param gradient Массив для частных производных в порядке {@link #getDifferentiationVariables()}.
+     * @return Значение выражения.
+     */
+    public double evaluate(double[] values, double[] gradient) {
+        return evaluate(values, gradient, new double[program.getMaxStackDepth()], new double[program.getOutputCount()]);
+    }
+
+    /**
+     * Вариант без выделения памяти для циклов оптимизации: стек и буфер результатов
+     * передаются вызывающим (см. {@link #newStack()} и {@link #newOutput()}).
+     */
+    public double evaluate(double[] values, double[] gradient, double[] stack, double[] output) {
+        if (values.length != program.getVariableCount()) {
+            throw new IllegalArgumentException("Ожидается значений переменных: " + program.getVariableCount() + " (передано: " + values.length + ").");
+        }
+        if (gradient.length < derivatives.length) {
+            throw new IllegalArgumentException("Массив градиента должен иметь длину не меньше " + derivatives.length + ".");
+        }
+        double value = program.evaluate(values, stack, output);
+        System.arraycopy(output, 1, gradient, 0, derivatives.length);
+        return value;
+    }
+
+    public double[] newStack() {
+        return new double[program.getMaxStackDepth()];
+    }
+
+    public double[] newOutput() {
+        return new double[program.getOutputCount()];
+    }
+
+    /**
+     * Входные переменные выражения в порядке первого появления.
+     */
+    public List<String> getVariables() {
+        return Arrays.asList(program.getVariables());
+    }
+
+    /**
+     * Переменные, по которым взяты производные, в порядке компонент градиента.
+     */
+    public List<String> getDifferentiationVariables() {
+        return Arrays.asList(differentiationVariables.clone());
+    }
+
+    /**
+     * Упрощенная производная по i-й переменной дифференцирования.
+     */
+    public Node getDerivative(int index) {
+        return derivatives[index];
+    }
+
+    /**
+     * Сколько узлов не вычисляется при каждом вычислении благодаря общим подвыражениям.
+     */
+    public int getSharedNodes() {
+        return program.getSharedNodes();
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(source);
+        for (int i = 0; i < derivatives.length; i++) {
+            text.append("\n d/d").append(differentiationVariables[i]).append(" = ").append(derivatives[i]);
+        }
+        return text.toString();
+    }
+}
@@ -1,68 +1,132 @@
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-
-public class Controller {
-    private Model model;
-    private View view;
-
-    public Controller(Model model, View view) {
-        this.model = model;
-        this.view = view;
-        this.view.addCalculateListener(new CalculateListener());
-    }
-
-    /**
-     * Проверяет, что количество открывающих и закрывающих скобок совпадает.
-     * @param expression Строка с уравнением.
-     * @return true, если скобки сбалансированы, иначе false.
-     */
-    private boolean areBracketsBalanced(String expression) {
-        int balance = 0;
-        for (char c : expression.toCharArray()) {
-            if (c == '(') {
-                balance++;
-            } else if (c == ')') {
-                balance--;
-            }
-            // Если в какой-то момент закрывающих скобок стало больше, выражение неверно
-            if (balance < 0) {
-                return false;
-            }
-        }
-        // В конце баланс должен быть равен нулю
-        return balance == 0;
-    }
-
-    class CalculateListener implements ActionListener {
-        @Override
-        public void actionPerformed(ActionEvent e) {
-            // Удаляем все пробелы для упрощения обработки
-            String expression = view.getExpression().trim().replaceAll("\\s+", "");
-
-            if (expression.isEmpty()) {
-                view.setResult("Ошибка: поле ввода не может быть пустым.");
-                return;
-            }
-
-            // 1. Новая проверка: правильное количество скобок (требование 2.g)
-            if (!areBracketsBalanced(expression)) {
-                view.setResult("Ошибка: количество открывающих и закрывающих скобок не совпадает.");
-                return;
-            }
-
-            // 2. Выполнение расчета через Model
-            try {
-                double result = model.calculate(expression);
-                // Форматируем результат для красивого вывода
-                if (result == (long) result) {
-                    view.setResult(String.format("%d", (long)result));
-                } else {
-                    view.setResult(String.format("%.4f", result));
-                }
-            } catch (Exception ex) {
-                // 3. Обработка любых ошибок от Model (включая проверку на число слагаемых)
-                view.setResult("Ошибка: " + ex.getMessage());
-            }
-        }
-    }
+import java.math.BigDecimal;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+public class Controller {
+    private Model model;
+    private View view;
+    // Вычисления выполняются в фоне, чтобы долгие выражения не блокировали интерфейс
+    private final AsyncEvaluator evaluator = new AsyncEvaluator();
+
+    // Предпросмотр при вводе: пауза после последней правки и ограничение времени вычисления
+    private static final int PREVIEW_DELAY_MILLIS = 200;
+    private static final long PREVIEW_TIMEOUT_MILLIS = 1_000;
+    private final AsyncEvaluator previewEvaluator = new AsyncEvaluator(PREVIEW_TIMEOUT_MILLIS);
+    private final LiveExpression liveExpression;
+    private final Timer previewTimer;
+
+    public Controller(Model model, View view) {
+        this.model = model;
+        this.view = view;
+        this.liveExpression = model.createLiveExpression();
+        // Тайм-ауты явного расчета учитываются в метриках модели; предпросмотр не учитывается
+        this.evaluator.setMetrics(model.getMetrics());
+        this.liveExpression.reset(view.getExpression());
+        // Таймер перезапускается при каждой правке, поэтому вычисляется только последняя
+        this.previewTimer = new Timer(PREVIEW_DELAY_MILLIS, e -> updatePreview());
+        this.previewTimer.setRepeats(false);
+        this.view.addCalculateListener(new CalculateListener());
+        this.view.addExpressionListener(new PreviewListener());
+        this.view.addModeListener(e -> previewTimer.restart());
+    }
+
+    /**
+     * Вычисляет предварительный результат текущего выражения.
+     * Разбор выполняется в потоке Swing (он быстрый), вычисление - в фоне;
+     * незавершенное вычисление для предыдущей правки отменяется.
+     */
+    private void updatePreview() {
+        Node tree;
+        try {
+            tree = liveExpression.isBlank() ? null : liveExpression.parse();
+        } catch (ParseException ex) {
+            // Выражение еще не дописано - ошибку покажет только явный расчет
+            tree = null;
+        }
+        if (tree == null) {
+            previewEvaluator.cancel();
+            view.setPreview("");
+            return;
+        }
+        Node expression = tree;
+        Model.NumericMode mode = view.getNumericMode();
+        previewEvaluator.submit(() -> model.calculateNumber(expression, mode),
+                result -> view.setPreview("= " + format(result)),
+                ex -> view.setPreview(""));
+    }
+
+    /**
+     * Форматирует результат для вывода: double - с 4 знаками после запятой,
+     * точные режимы - полностью, без экспоненциальной записи.
+     */
+    private String format(Number result) {
+        if (result instanceof BigDecimal) {
+            BigDecimal value = ((BigDecimal) result).stripTrailingZeros();
+            return value.signum() == 0 ? "0" : value.toPlainString();
+        }
+        if (!(result instanceof Double)) {
+            return result.toString();
+        }
+        double value = result.doubleValue();
+        if (value == (long) value) {
+            return String.format("%d", (long) value);
+        }
+        return String.format("%.4f", value);
+    }
+
+    class PreviewListener implements DocumentListener {
+        @Override
+        public void insertUpdate(DocumentEvent e) {
+            liveExpression.edit(view.getExpression(), e.getOffset(), 0, e.getLength());
+            previewTimer.restart();
+        }
+
+        @Override
+        public void removeUpdate(DocumentEvent e) {
+            liveExpression.edit(view.getExpression(), e.getOffset(), e.getLength(), 0);
+            previewTimer.restart();
+        }
+
+        @Override
+        public void changedUpdate(DocumentEvent e) {
+            // Изменение атрибутов текста не меняет выражение
+        }
+    }
+
+    class CalculateListener implements ActionListener {
+        @Override
+        public void actionPerformed(ActionEvent e) {
+            // Пробелы пропускает лексический анализатор модели
+            String expression = view.getExpression();
+
+            if (expression.trim().isEmpty()) {
+                view.setResult("Ошибка: поле ввода не может быть пустым.");
+                return;
+            }
+
+            // Определение функции вида f(x) = x^2 + 1 регистрируется сразу
+            if (Model.isDefinition(expression)) {
+                try {
+                    CalculatorFunction function = model.define(expression);
+                    view.setResult("функция " + function.getName() + " определена.");
+                    // Выражение в поле могло ссылаться на прежнее определение
+                    liveExpression.reset(view.getExpression());
+                } catch (Exception ex) {
+                    view.setResult("Ошибка: " + ex.getMessage());
+                }
+                return;
+            }
+
+            // Выполнение расчета через Model в фоновом потоке; предыдущее вычисление отменяется
+            Model.NumericMode mode = view.getNumericMode();
+            view.setResult("вычисление...");
+            evaluator.submit(() -> model.calculateNumber(expression, mode),
+                    result -> view.setResult(format(result)),
+                    // Обработка любых ошибок от Model (включая скобки, число слагаемых и таймаут)
+                    ex -> view.setResult("Ошибка: " + ex.getMessage()));
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,214 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Вычисление дерева выражения в BigDecimal с заданной точностью (MathContext).
+ * Числа берутся из исходной записи, поэтому 0.1 + 0.2 = 0.3 ровно.
+ * log и exp вычисляются рядами до нужного количества знаков.
+ * Одинаковые подвыражения вычисляются один раз за вычисление.
+ */
+public class DecimalEvaluator {
+
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+    private static final BigDecimal HALF = new BigDecimal("0.5");
+    // Предел аргумента exp: больший результат не помещается в диапазон порядков BigDecimal
+    private static final double MAX_EXP_ARGUMENT = 1e9;
+    private static final int GUARD_DIGITS = 10;
+
+    private final MathContext mathContext;
+    // Результаты уже вычисленных поддеревьев текущего выражения
+    private final Map<Node, BigDecimal> computed = new HashMap<>();
+
+    public DecimalEvaluator(MathContext mathContext) {
+        this.mathContext = mathContext;
+    }
+
+    public BigDecimal evaluate(Node root) {
+        computed.clear();
+        try {
+            return eval(root).round(mathContext);
+        } finally {
+            computed.clear();
+        }
+    }
+
+    private BigDecimal eval(Node node) {
+        Operations.checkInterrupted();
+        boolean reusable = node.getChildCount() > 0 && node.isPure();
+        if (reusable) {
+            BigDecimal known = computed.get(node);
+            if (known != null) return known;
+        }
+        BigDecimal result = compute(node);
+        if (reusable) {
+            computed.put(node, result);
+        }
+        return result;
+    }
+
+    private BigDecimal compute(Node node) {
+        switch (node.getKind()) {
+            case CONSTANT:
+                return node.getLiteral() != null ? new BigDecimal(node.getLiteral()) : BigDecimal.valueOf(node.getValue());
+            case VARIABLE:
+                throw new UnknownVariableException(node.getName());
+            case UNARY:
+                return unary(node.getOpcode(), eval(node.getChild(0)));
+            case CALL:
+                // Внешние функции реализованы только в double
+                throw new ArithmeticException("Функция " + node.getFunction().getName() + " недоступна в точном режиме.");
+            default:
+                return binary(node.getOpcode(), eval(node.getChild(0)), eval(node.getChild(1)));
+        }
+    }
+
+    private BigDecimal unary(int opcode, BigDecimal operand) {
+        switch (opcode) {
+            case Program.NEG:
+                return operand.negate();
+            case Program.FACT:
+                return new BigDecimal(Factorials.exact(toFactorialArgument(operand)), mathContext);
+            case Program.LOG: // Логарифм по основанию 2
+                if (operand.signum() <= 0) throw new ArithmeticException("Аргумент логарифма должен быть > 0.");
+                MathContext work = workContext(0);
+                return ln(operand, work).divide(ln(TWO, work), mathContext);
+            case Program.EXP:
+                return exp(operand);
+            default:
+                throw new IllegalArgumentException("Неизвестная функция: " + Operations.symbolOf(opcode));
+        }
+    }
+
+    private BigDecimal binary(int opcode, BigDecimal left, BigDecimal right) {
+        switch (opcode) {
+            case Program.ADD: return left.add(right, mathContext);
+            case Program.SUB: return left.subtract(right, mathContext);
+            case Program.MUL: return left.multiply(right, mathContext);
+            case Program.DIV:
+                if (right.signum() == 0) throw new DivisionByZeroException();
+                return left.divide(right, mathContext);
+            case Program.IDIV:
+                if (right.signum() == 0) throw new DivisionByZeroException();
+                return left.divide(right, 0, RoundingMode.FLOOR);
+            case Program.POW:
+                return pow(left, right);
+            default:
+                throw new IllegalArgumentException("Неизвестный оператор: " + Operations.symbolOf(opcode));
+        }
+    }
+
+    private BigDecimal pow(BigDecimal base, BigDecimal exponent) {
+        if (isInteger(exponent)) {
+            int n;
+            try {
+                n = exponent.intValueExact();
+            } catch (ArithmeticException e) {
+                throw new ArithmeticException("Слишком большой показатель степени.");
+            }
+            if (base.signum() == 0 && n < 0) throw new DivisionByZeroException();
+            return base.pow(n, mathContext);
+        }
+        if (base.signum() < 0) {
+            throw new ArithmeticException("Возведение отрицательного числа в дробную степень не определено.");
+        }
+        if (base.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        MathContext work = workContext(0);
+        return exp(exponent.multiply(ln(base, work), work));
+    }
+
+    /**
+     * e^x: аргумент делится пополам до |x| <= 0.5, сумма ряда Тейлора затем возводится в квадрат.
+     */
+    private BigDecimal exp(BigDecimal x) {
+        if (x.signum() == 0) return BigDecimal.ONE;
+        double approximate = Math.abs(x.doubleValue());
+        if (approximate > MAX_EXP_ARGUMENT) {
+            throw new ArithmeticException("Слишком большой аргумент exp.");
+        }
+        int halvings = approximate > 0.5 ? (int) Math.ceil(Math.log(approximate / 0.5) / Math.log(2)) : 0;
+        // Каждое возведение в квадрат удваивает относительную погрешность
+        MathContext work = workContext(halvings / 3 + 1);
+
+        BigDecimal reduced = x;
+        for (int i = 0; i < halvings; i++) {
+            reduced = reduced.divide(TWO, work);
+        }
+        while (reduced.abs().compareTo(HALF) > 0) {
+            reduced = reduced.divide(TWO, work);
+            halvings++;
+        }
+
+        BigDecimal sum = BigDecimal.ONE;
+        BigDecimal term = BigDecimal.ONE;
+        for (int n = 1; ; n++) {
+            Operations.checkInterrupted();
+            term = term.multiply(reduced, work).divide(BigDecimal.valueOf(n), work);
+            sum = sum.add(term, work);
+            if (term.signum() == 0 || term.abs().compareTo(sum.abs().movePointLeft(work.getPrecision())) < 0) break;
+        }
+        for (int i = 0; i < halvings; i++) {
+            sum = sum.multiply(sum, work);
+        }
+        return sum.round(mathContext);
+    }
+
+    /**
+     * Натуральный логарифм: x = m * 10^e, ln x = ln m + e * ln 10,
+     * ln m уточняется итерациями Галлея от приближения в double.
+     */
+    private BigDecimal ln(BigDecimal x, MathContext work) {
+        int exponent = x.precision() - x.scale() - 1;
+        BigDecimal mantissa = x.movePointLeft(exponent);
+        BigDecimal result = lnNear(mantissa, work);
+        if (exponent != 0) {
+            result = result.add(lnNear(BigDecimal.TEN, work).multiply(BigDecimal.valueOf(exponent), work), work);
+        }
+        return result;
+    }
+
+    /**
+     * ln x для x, представимого в double: y' = y + 2 (x - e^y) / (x + e^y).
+     */
+    private BigDecimal lnNear(BigDecimal x, MathContext work) {
+        MathContext inner = new MathContext(work.getPrecision() + GUARD_DIGITS, RoundingMode.HALF_EVEN);
+        DecimalEvaluator precise = new DecimalEvaluator(inner);
+        BigDecimal y = new BigDecimal(Math.log(x.doubleValue()));
+        BigDecimal threshold = BigDecimal.ONE.movePointLeft(work.getPrecision());
+        for (int i = 0; i < 100; i++) {
+            Operations.checkInterrupted();
+            BigDecimal ey = precise.exp(y);
+            BigDecimal delta = TWO.multiply(x.subtract(ey, inner), inner).divide(x.add(ey, inner), inner);
+            y = y.add(delta, inner);
+            if (delta.abs().compareTo(threshold) < 0) break;
+        }
+        return y.round(work);
+    }
+
+    private MathContext workContext(int extraDigits) {
+        if (mathContext.getPrecision() == 0) {
+            throw new ArithmeticException("Для log, exp и дробных степеней нужна ограниченная точность MathContext.");
+        }
+        return new MathContext(mathContext.getPrecision() + GUARD_DIGITS + extraDigits, RoundingMode.HALF_EVEN);
+    }
+
+    private static int toFactorialArgument(BigDecimal operand) {
+        if (operand.signum() < 0 || !isInteger(operand)) {
+            throw new ArithmeticException("Факториал определен только для неотрицательных целых чисел.");
+        }
+        BigInteger value = operand.toBigInteger();
+        if (value.compareTo(BigInteger.valueOf(Factorials.MAX_EXACT_ARGUMENT)) > 0) {
+            throw new ArithmeticException("Слишком большое число для вычисления факториала (> " + Factorials.MAX_EXACT_ARGUMENT + ").");
+        }
+        return value.intValue();
+    }
+
+    private static boolean isInteger(BigDecimal value) {
+        return value.signum() == 0 || value.stripTrailingZeros().scale() <= 0;
+    }
+}
@@ -0,0 +1,174 @@
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Символьное дифференцирование дерева выражения по именованной переменной.
+ * Производная строится через упрощающие конструкторы (0*u = 0, u*1 = u, свертка констант),
+ * поэтому результат не разрастается нулевыми слагаемыми; окончательно его упрощает {@link Optimizer}.
+ * log в калькуляторе - логарифм по основанию 2, поэтому ln u = log(u) * ln 2.
+ * Факториал, деление нацело и внешние функции дифференцируемы только как константы.
+ */
+public final class Differentiator {
+
+    private static final Node ZERO = Node.constant(0);
+    private static final Node ONE = Node.constant(1);
+    private static final Node LN2 = Node.constant(Math.log(2));
+
+    private Differentiator() {
+    }
+
+    /**
+     * Производная выражения по переменной variable.
+     * @throws ArithmeticException Выражение содержит недифференцируемую операцию, зависящую от переменной.
+     */
+    public static Node derivative(Node node, String variable) {
+        if (!dependsOn(node, variable)) {
+            return ZERO;
+        }
+        switch (node.getKind()) {
+            case VARIABLE:
+                return ONE; // Другие переменные отсеяны проверкой dependsOn
+            case UNARY:
+                return unary(node, variable);
+            case BINARY:
+                return binary(node, variable);
+            default:
+                throw new ArithmeticException("Функция " + node.getFunction().getName() + " не дифференцируется символьно.");
+        }
+    }
+
+    private static Node unary(Node node, String variable) {
+        Node u = node.getChild(0);
+        Node du = derivative(u, variable);
+        switch (node.getOpcode()) {
+            case Program.NEG:
+                return neg(du);
+            case Program.EXP: // (e^u)' = e^u * u'
+                return mul(node, du);
+            case Program.LOG: // (log2 u)' = u' / (u * ln 2)
+                return div(du, mul(u, LN2));
+            default:
+                throw new ArithmeticException("Операция " + Operations.symbolOf(node.getOpcode()) + " не дифференцируется.");
+        }
+    }
+
+    private static Node binary(Node node, String variable) {
+        Node u = node.getChild(0);
+        Node v = node.getChild(1);
+        Node du = derivative(u, variable);
+        Node dv = derivative(v, variable);
+        switch (node.getOpcode()) {
+            case Program.ADD:
+                return add(du, dv);
+            case Program.SUB:
+                return sub(du, dv);
+            case Program.MUL: // (uv)' = u'v + uv'
+                return add(mul(du, v), mul(u, dv));
+            case Program.DIV: // (u/v)' = (u'v - uv') / v^2
+                if (dv.isConstant(0)) return div(du, v);
+                return div(sub(mul(du, v), mul(u, dv)), pow(v, Node.constant(2)));
+            case Program.POW: {
+                // (u^v)' = v * u^(v-1) * u' + u^v * ln u * v'. Слагаемое с ln u есть, только если
+                // показатель зависит от переменной, поэтому x^2 и x^3 дифференцируются и при x <= 0
+                Node base = mul(mul(v, pow(u, sub(v, ONE))), du);
+                if (dv.isConstant(0)) return base;
+                return add(base, mul(mul(node, ln(u)), dv));
+            }
+            default:
+                throw new ArithmeticException("Операция " + Operations.symbolOf(node.getOpcode()) + " не дифференцируется.");
+        }
+    }
+
+    /**
+     * Зависит ли поддерево от переменной.
+     */
+    public static boolean dependsOn(Node node, String variable) {
+        if (node.getKind() == Node.Kind.VARIABLE) {
+            return node.getName().equals(variable);
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            if (dependsOn(node.getChild(i), variable)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Переменные выражения в порядке первого появления (тот же порядок, что у {@link Program#getVariables()}).
+     */
+    public static String[] variables(Node node) {
+        Set<String> names = new LinkedHashSet<>();
+        collectVariables(node, names);
+        return names.toArray(new String[0]);
+    }
+
+    private static void collectVariables(Node node, Set<String> names) {
+        if (node.getKind() == Node.Kind.VARIABLE) {
+            names.add(node.getName());
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            collectVariables(node.getChild(i), names);
+        }
+    }
+
+    // --- Упрощающие конструкторы ---
+
+    private static Node ln(Node u) {
+        return mul(Node.unary(Program.LOG, u), LN2);
+    }
+
+    private static Node neg(Node a) {
+        if (a.isConstant()) return Node.constant(-a.getValue());
+        if (isNegation(a)) return a.getChild(0);
+        return Node.unary(Program.NEG, a);
+    }
+
+    private static Node add(Node a, Node b) {
+        if (a.isConstant(0)) return b;
+        if (b.isConstant(0)) return a;
+        if (a.isConstant() && b.isConstant()) return Node.constant(a.getValue() + b.getValue());
+        if (isNegation(b)) return sub(a, b.getChild(0));
+        return Node.binary(Program.ADD, a, b);
+    }
+
+    private static Node sub(Node a, Node b) {
+        if (b.isConstant(0)) return a;
+        if (a.isConstant(0)) return neg(b);
+        if (a.isConstant() && b.isConstant()) return Node.constant(a.getValue() - b.getValue());
+        if (a.equals(b)) return ZERO;
+        if (isNegation(b)) return add(a, b.getChild(0));
+        return Node.binary(Program.SUB, a, b);
+    }
+
+    private static Node mul(Node a, Node b) {
+        // 0 * u = 0 даже для бесконечного u: производная константы равна нулю
+        if (a.isConstant(0) || b.isConstant(0)) return ZERO;
+        if (a.isConstant(1)) return b;
+        if (b.isConstant(1)) return a;
+        if (a.isConstant(-1)) return neg(b);
+        if (b.isConstant(-1)) return neg(a);
+        if (a.isConstant() && b.isConstant()) return Node.constant(a.getValue() * b.getValue());
+        // Константу - вперед, чтобы 2 * (3 * x) сворачивалось в 6 * x
+        if (b.isConstant()) return mul(b, a);
+        if (a.isConstant() && b.getKind() == Node.Kind.BINARY && b.getOpcode() == Program.MUL && b.getChild(0).isConstant()) {
+            return mul(Node.constant(a.getValue() * b.getChild(0).getValue()), b.getChild(1));
+        }
+        return Node.binary(Program.MUL, a, b);
+    }
+
+    private static Node div(Node a, Node b) {
+        if (a.isConstant(0)) return ZERO;
+        if (b.isConstant(1)) return a;
+        if (isNegation(a)) return neg(div(a.getChild(0), b));
+        return Node.binary(Program.DIV, a, b);
+    }
+
+    private static boolean isNegation(Node node) {
+        return node.getKind() == Node.Kind.UNARY && node.getOpcode() == Program.NEG;
+    }
+
+    private static Node pow(Node a, Node b) {
+        if (b.isConstant(0)) return ONE;
+        if (b.isConstant(1)) return a;
+        return Node.binary(Program.POW, a, b);
+    }
+}
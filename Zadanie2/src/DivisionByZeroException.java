@@ -0,0 +1,11 @@
+/**
+ * Деление на ноль при вычислении выражения (в любом числовом режиме).
+ */
+public class DivisionByZeroException extends ArithmeticException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DivisionByZeroException() {
+        super("Деление на ноль.");
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * Вычислитель скомпилированного выражения: значения переменных -> результат.
+ * Реализации не хранят состояния между вызовами и безопасны для многопоточного использования.
+ */
+public interface DoubleEvaluator {
+
+    /**
+     * @param values Значения переменных в порядке {@link CompiledExpression#getVariables()}.
+     */
+    double evaluate(double[] values);
+}
@@ -0,0 +1,161 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ограниченный LRU-кэш скомпилированных выражений.
+ * Ключ - строка выражения в том виде, в каком ее ввели, значение - результат компиляции.
+ * Искать можно по любой CharSequence (например, по строке файла поверх отображенных байтов):
+ * ключи сравниваются по символам, и строка создается только при добавлении.
+ * Счетчики попаданий, промахов и вытеснений позволяют подобрать размер кэша.
+ */
+public class ExpressionCache<V> {
+
+    private final int capacity;
+    private final LinkedHashMap<Key, V> entries;
+    private final Key probe = new Key(null); // Ключ для поиска, используется под блокировкой кэша
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long generation; // Увеличивается при каждой очистке
+
+    public ExpressionCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер кэша должен быть > 0.");
+        }
+        this.capacity = capacity;
+        // accessOrder = true: порядок обхода соответствует давности использования
+        this.entries = new LinkedHashMap<Key, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, V> eldest) {
+                if (size() > ExpressionCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Возвращает значение по ключу или null, если его нет в кэше.
+     */
+    public synchronized V get(CharSequence key) {
+        V value = entries.get(probe.reset(key));
+        probe.reset(null);
+        if (value != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return value;
+    }
+
+    public synchronized void put(String key, V value) {
+        entries.put(new Key(key), value);
+    }
+
+    /**
+     * Добавляет значение, только если кэш не очищали после {@link #getGeneration()}, прочитанного
+     * до вычисления значения: результат, начатый до очистки (например, по прежнему реестру функций),
+     * в кэш не попадет.
+     * @return true, если значение добавлено.
+     */
+    public synchronized boolean put(String key, V value, long generation) {
+        if (generation != this.generation) {
+            return false;
+        }
+        entries.put(new Key(key), value);
+        return true;
+    }
+
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Копия содержимого от давно использованных записей к недавним
+     * (например, для сохранения на диск); при повторной вставке в том же порядке LRU-порядок сохраняется.
+     */
+    public synchronized Map<String, V> snapshot() {
+        Map<String, V> copy = new LinkedHashMap<>();
+        entries.forEach((key, value) -> copy.put(key.text.toString(), value));
+        return copy;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        generation++;
+    }
+
+    // --- Статистика ---
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Кэш выражений: размер " + entries.size() + "/" + capacity
+                + ", попаданий " + hits + ", промахов " + misses + ", вытеснений " + evictions;
+    }
+
+    /**
+     * Ключ, сравниваемый по символам текста: в кэше лежат строки, при поиске -
+     * любая CharSequence. Хеш совпадает с String.hashCode.
+     */
+    private static final class Key {
+        private CharSequence text;
+        private int hash;
+
+        Key(CharSequence text) {
+            reset(text);
+        }
+
+        Key reset(CharSequence text) {
+            this.text = text;
+            int h = 0;
+            if (text instanceof String) {
+                h = text.hashCode(); // Хеш строки уже посчитан и сохранен в ней
+            } else if (text != null) {
+                for (int i = 0; i < text.length(); i++) {
+                    h = 31 * h + text.charAt(i);
+                }
+            }
+            this.hash = h;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            if (hash != key.hash || text.length() != key.text.length()) return false;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) != key.text.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+import java.math.BigInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Вычисление факториалов: таблица для малых n и дерево произведений для больших.
+ * Дерево перемножает числа примерно одинаковой длины, поэтому BigInteger
+ * использует быстрые алгоритмы умножения, и 1000! вычисляется за доли миллисекунды.
+ * Несколько последних больших точных значений запоминаются: повторный n! в пакетной
+ * обработке или в соседних выражениях не пересчитывается.
+ */
+public final class Factorials {
+
+    /** Максимальный аргумент, для которого n! представим в double. */
+    public static final int MAX_DOUBLE_ARGUMENT = 170;
+    /** Ограничение для точного режима, чтобы одно выражение не занимало минуты. */
+    public static final int MAX_EXACT_ARGUMENT = 100_000;
+
+    private static final double[] DOUBLE_TABLE = new double[MAX_DOUBLE_ARGUMENT + 1];
+    private static final long[] LONG_TABLE = new long[21];
+    // Ниже этого размера диапазона перемножаем последовательно в long
+    private static final int LEAF_SIZE = 16;
+    // Кэш с прямым отображением n -> n!; записи неизменяемы, поэтому блокировки не нужны
+    private static final int MEMO_SIZE = 16;
+    private static final Entry[] MEMO = new Entry[MEMO_SIZE];
+    private static final LongAdder MEMO_HITS = new LongAdder();
+    private static final LongAdder MEMO_MISSES = new LongAdder();
+
+    static {
+        DOUBLE_TABLE[0] = 1;
+        for (int i = 1; i <= MAX_DOUBLE_ARGUMENT; i++) {
+            DOUBLE_TABLE[i] = DOUBLE_TABLE[i - 1] * i;
+        }
+        LONG_TABLE[0] = 1;
+        for (int i = 1; i < LONG_TABLE.length; i++) {
+            LONG_TABLE[i] = LONG_TABLE[i - 1] * i;
+        }
+    }
+
+    private Factorials() {
+    }
+
+    /**
+     * n! в double из заранее вычисленной таблицы.
+     */
+    public static double asDouble(int n) {
+        return DOUBLE_TABLE[n];
+    }
+
+    /**
+     * Точное значение n!.
+     */
+    public static BigInteger exact(int n) {
+        if (n < 0) {
+            throw new ArithmeticException("Факториал определен только для неотрицательных целых чисел.");
+        }
+        if (n > MAX_EXACT_ARGUMENT) {
+            throw new ArithmeticException("Слишком большое число для вычисления факториала (> " + MAX_EXACT_ARGUMENT + ").");
+        }
+        if (n < LONG_TABLE.length) {
+            return BigInteger.valueOf(LONG_TABLE[n]);
+        }
+        int index = n & (MEMO_SIZE - 1);
+        Entry entry = MEMO[index];
+        if (entry != null && entry.n == n) {
+            MEMO_HITS.increment();
+            return entry.value;
+        }
+        MEMO_MISSES.increment();
+        BigInteger value = product(2, n);
+        MEMO[index] = new Entry(n, value);
+        return value;
+    }
+
+    /**
+     * Сколько раз точный факториал был взят из кэша.
+     */
+    public static long getMemoHits() {
+        return MEMO_HITS.sum();
+    }
+
+    /**
+     * Сколько раз точный факториал (n > 20) пришлось вычислять.
+     */
+    public static long getMemoMisses() {
+        return MEMO_MISSES.sum();
+    }
+
+    /**
+     * Произведение чисел от low до high включительно.
+     */
+    private static BigInteger product(int low, int high) {
+        if (high - low < LEAF_SIZE) {
+            Operations.checkInterrupted();
+            // Произведение 16 чисел до 100 000 может переполнить long, поэтому копим в BigInteger
+            // по частям, пока промежуточное значение помещается в long
+            BigInteger result = BigInteger.ONE;
+            long partial = 1;
+            for (long i = low; i <= high; i++) {
+                if (partial > Long.MAX_VALUE / i) {
+                    result = result.multiply(BigInteger.valueOf(partial));
+                    partial = 1;
+                }
+                partial *= i;
+            }
+            return result.multiply(BigInteger.valueOf(partial));
+        }
+        int middle = (low + high) >>> 1;
+        return product(low, middle).multiply(product(middle + 1, high));
+    }
+
+    private static final class Entry {
+        final int n;
+        final BigInteger value;
+
+        Entry(int n, BigInteger value) {
+            this.n = n;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Реестр функций калькулятора. Имена не зависят от регистра (как и прежние log и exp).
+ * Функция ищется один раз при разборе выражения, и скомпилированная программа
+ * хранит прямую ссылку на нее, поэтому при вычислении поиска по имени нет.
+ * После изменения реестра подписчики (например, кэш выражений модели) получают уведомление.
+ */
+public class FunctionRegistry {
+
+    private final ConcurrentMap<String, CalculatorFunction> functions = new ConcurrentHashMap<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Реестр со встроенными функциями log (по основанию 2) и exp.
+     */
+    public FunctionRegistry() {
+        functions.put("log", CalculatorFunction.intrinsic("log", Program.LOG));
+        functions.put("exp", CalculatorFunction.intrinsic("exp", Program.EXP));
+    }
+
+    /**
+     * Регистрирует функцию, заменяя ранее зарегистрированную с тем же именем.
+     * Встроенные функции заменить нельзя.
+     */
+    public void register(CalculatorFunction function) {
+        String key = keyOf(function.getName());
+        functions.compute(key, (name, existing) -> {
+            if (existing != null && existing.isIntrinsic()) {
+                throw new IllegalArgumentException("Нельзя переопределить встроенную функцию " + existing.getName() + ".");
+            }
+            return function;
+        });
+        fireChanged();
+    }
+
+    /**
+     * Удаляет пользовательскую функцию.
+     * @return true, если функция была зарегистрирована.
+     */
+    public boolean remove(String name) {
+        CalculatorFunction existing = functions.get(keyOf(name));
+        if (existing == null || existing.isIntrinsic() || !functions.remove(keyOf(name), existing)) {
+            return false;
+        }
+        fireChanged();
+        return true;
+    }
+
+    /**
+     * Функция по имени без учета регистра или null.
+     */
+    public CalculatorFunction find(String name) {
+        return functions.get(keyOf(name));
+    }
+
+    public Collection<CalculatorFunction> getFunctions() {
+        return new ArrayList<>(functions.values());
+    }
+
+    /**
+     * Подписка на изменения реестра: скомпилированные ранее выражения могли устареть.
+     */
+    public void addChangeListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Отмена подписки: реестр держит подписчиков, пока их не удалят.
+     */
+    public void removeChangeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireChanged() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    private static String keyOf(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,100 @@
+import java.beans.ConstructorProperties;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Потокобезопасная гистограмма неотрицательных значений с корзинами по степеням двойки:
+ * корзина i содержит значения от 2^(i-1) до 2^i - 1 (корзина 0 - нули).
+ * Запись не блокирует и не выделяет память, поэтому годится для горячего пути вычисления.
+ * Процентили оцениваются по верхней границе корзины, то есть с точностью до двух раз.
+ */
+public final class Histogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * Согласованный (с точностью до одновременных записей) снимок для JMX.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        long sumValue = sum.sum();
+        double mean = total == 0 ? 0 : (double) sumValue / total;
+        return new Snapshot(total, mean, max.get(),
+                percentile(counts, total, 0.50), percentile(counts, total, 0.95), percentile(counts, total, 0.99));
+    }
+
+    private static long percentile(long[] counts, long total, double quantile) {
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return (1L << i) - 1; // Верхняя граница корзины
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Значения гистограммы на момент снятия; в JMX отображается как CompositeData.
+     */
+    public static final class Snapshot {
+        private final long count;
+        private final double mean;
+        private final long max;
+        private final long p50;
+        private final long p95;
+        private final long p99;
+
+        @ConstructorProperties({"count", "mean", "max", "p50", "p95", "p99"})
+        public Snapshot(long count, double mean, long max, long p50, long p95, long p99) {
+            this.count = count;
+            this.mean = mean;
+            this.max = max;
+            this.p50 = p50;
+            this.p95 = p95;
+            this.p99 = p99;
+        }
+
+        public long getCount() { return count; }
+        public double getMean() { return mean; }
+        public long getMax() { return max; }
+        public long getP50() { return p50; }
+        public long getP95() { return p95; }
+        public long getP99() { return p99; }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d, среднее=%.1f, p50<=%d, p95<=%d, p99<=%d, макс=%d", count, mean, p50, p95, p99, max);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Точное вычисление целочисленных выражений в BigInteger без ограничения разрядности.
+ * Деление "/" допускается только нацело; log и exp в этом режиме недоступны.
+ * Одинаковые подвыражения вычисляются один раз за вычисление.
+ */
+public class IntegerEvaluator {
+
+    // Ограничение на размер результата возведения в степень (в битах)
+    private static final long MAX_RESULT_BITS = 1L << 26;
+
+    // Результаты уже вычисленных поддеревьев текущего выражения
+    private final Map<Node, BigInteger> computed = new HashMap<>();
+
+    public BigInteger evaluate(Node root) {
+        computed.clear();
+        try {
+            return eval(root);
+        } finally {
+            computed.clear();
+        }
+    }
+
+    private BigInteger eval(Node node) {
+        Operations.checkInterrupted();
+        boolean reusable = node.getChildCount() > 0 && node.isPure();
+        if (reusable) {
+            BigInteger known = computed.get(node);
+            if (known != null) return known;
+        }
+        BigInteger result = compute(node);
+        if (reusable) {
+            computed.put(node, result);
+        }
+        return result;
+    }
+
+    private BigInteger compute(Node node) {
+        switch (node.getKind()) {
+            case CONSTANT:
+                return constant(node);
+            case VARIABLE:
+                throw new UnknownVariableException(node.getName());
+            case UNARY:
+                return unary(node.getOpcode(), eval(node.getChild(0)));
+            case CALL:
+                // Внешние функции реализованы только в double
+                throw new ArithmeticException("Функция " + node.getFunction().getName() + " недоступна в точном режиме.");
+            default:
+                return binary(node.getOpcode(), eval(node.getChild(0)), eval(node.getChild(1)));
+        }
+    }
+
+    private BigInteger constant(Node node) {
+        BigDecimal value = node.getLiteral() != null ? new BigDecimal(node.getLiteral()) : BigDecimal.valueOf(node.getValue());
+        try {
+            return value.toBigIntegerExact();
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Целочисленный режим: число " + value.toPlainString() + " не является целым.");
+        }
+    }
+
+    private BigInteger unary(int opcode, BigInteger operand) {
+        switch (opcode) {
+            case Program.NEG:
+                return operand.negate();
+            case Program.FACT:
+                if (operand.signum() < 0) {
+                    throw new ArithmeticException("Факториал определен только для неотрицательных целых чисел.");
+                }
+                if (operand.compareTo(BigInteger.valueOf(Factorials.MAX_EXACT_ARGUMENT)) > 0) {
+                    throw new ArithmeticException("Слишком большое число для вычисления факториала (> " + Factorials.MAX_EXACT_ARGUMENT + ").");
+                }
+                return Factorials.exact(operand.intValue());
+            default:
+                throw new ArithmeticException("Функция " + Operations.symbolOf(opcode) + " недоступна в целочисленном режиме.");
+        }
+    }
+
+    private BigInteger binary(int opcode, BigInteger left, BigInteger right) {
+        switch (opcode) {
+            case Program.ADD: return left.add(right);
+            case Program.SUB: return left.subtract(right);
+            case Program.MUL: return left.multiply(right);
+            case Program.DIV: {
+                if (right.signum() == 0) throw new DivisionByZeroException();
+                BigInteger[] quotientAndRemainder = left.divideAndRemainder(right);
+                if (quotientAndRemainder[1].signum() != 0) {
+                    throw new ArithmeticException("Результат деления не является целым числом.");
+                }
+                return quotientAndRemainder[0];
+            }
+            case Program.IDIV: {
+                if (right.signum() == 0) throw new DivisionByZeroException();
+                BigInteger[] quotientAndRemainder = left.divideAndRemainder(right);
+                // divide округляет к нулю, а "//" - вниз
+                if (quotientAndRemainder[1].signum() != 0 && left.signum() != right.signum()) {
+                    return quotientAndRemainder[0].subtract(BigInteger.ONE);
+                }
+                return quotientAndRemainder[0];
+            }
+            case Program.POW:
+                return pow(left, right);
+            default:
+                throw new IllegalArgumentException("Неизвестный оператор: " + Operations.symbolOf(opcode));
+        }
+    }
+
+    private BigInteger pow(BigInteger base, BigInteger exponent) {
+        if (exponent.signum() < 0) {
+            throw new ArithmeticException("Отрицательная степень недоступна в целочисленном режиме.");
+        }
+        if (base.abs().compareTo(BigInteger.ONE) <= 0) {
+            // 0, 1 и -1 в любой степени не растут
+            if (base.signum() == 0) return exponent.signum() == 0 ? BigInteger.ONE : BigInteger.ZERO;
+            return base.signum() > 0 || !exponent.testBit(0) ? BigInteger.ONE : base;
+        }
+        if (exponent.bitLength() > 31 || (long) base.bitLength() * exponent.longValue() > MAX_RESULT_BITS) {
+            throw new ArithmeticException("Слишком большой результат возведения в степень.");
+        }
+        return base.pow(exponent.intValue());
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * Замкнутый интервал [low, high] вещественных чисел для интервальной арифметики.
+ * Границы результатов операций округляются наружу (на одну единицу последнего разряда),
+ * поэтому интервал гарантированно содержит все значения, которые дало бы вычисление в double.
+ * Неизменяем.
+ */
+public final class Interval {
+
+    /** Вся числовая прямая: результат, о котором ничего не известно. */
+    public static final Interval ENTIRE = new Interval(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+    private final double low;
+    private final double high;
+
+    private Interval(double low, double high) {
+        this.low = low;
+        this.high = high;
+    }
+
+    public static Interval of(double low, double high) {
+        if (Double.isNaN(low) || Double.isNaN(high) || low > high) {
+            throw new IllegalArgumentException("Некорректный интервал: [" + low + ", " + high + "]");
+        }
+        return new Interval(low, high);
+    }
+
+    public static Interval point(double value) {
+        return of(value, value);
+    }
+
+    /**
+     * Наименьший интервал, содержащий все значения столбца (например, входных данных пакетного вычисления).
+     */
+    public static Interval hull(double[] values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("Пустой столбец значений.");
+        }
+        double low = Double.POSITIVE_INFINITY;
+        double high = Double.NEGATIVE_INFINITY;
+        for (double value : values) {
+            if (Double.isNaN(value)) return ENTIRE;
+            low = Math.min(low, value);
+            high = Math.max(high, value);
+        }
+        return new Interval(low, high);
+    }
+
+    public double getLow() { return low; }
+    public double getHigh() { return high; }
+
+    public boolean contains(double value) {
+        return low <= value && value <= high;
+    }
+
+    public boolean isPoint() {
+        return low == high;
+    }
+
+    public double width() {
+        return high - low;
+    }
+
+    // --- Арифметика ---
+
+    public Interval negate() {
+        return new Interval(-high, -low);
+    }
+
+    public Interval add(Interval other) {
+        return outward(low + other.low, high + other.high);
+    }
+
+    public Interval subtract(Interval other) {
+        return outward(low - other.high, high - other.low);
+    }
+
+    public Interval multiply(Interval other) {
+        double a = product(low, other.low);
+        double b = product(low, other.high);
+        double c = product(high, other.low);
+        double d = product(high, other.high);
+        return outward(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)));
+    }
+
+    /**
+     * Деление на интервал без нуля. Если делитель содержит ноль, результат - вся прямая
+     * (проверку и предупреждение выполняет {@link IntervalEvaluator}).
+     */
+    public Interval divide(Interval other) {
+        if (other.contains(0)) {
+            return ENTIRE;
+        }
+        return multiply(outward(1 / other.high, 1 / other.low));
+    }
+
+    /**
+     * Деление нацело (вниз), как оператор "//".
+     */
+    public Interval integerDivide(Interval other) {
+        Interval quotient = divide(other);
+        return new Interval(Math.floor(quotient.low), Math.floor(quotient.high));
+    }
+
+    public Interval exp() {
+        return outward(Math.exp(low), Math.exp(high));
+    }
+
+    /**
+     * Логарифм по основанию 2 от части интервала, лежащей правее нуля.
+     */
+    public Interval log2() {
+        if (high <= 0) {
+            return ENTIRE;
+        }
+        double lowLog = low > 0 ? Math.log(low) / Math.log(2) : Double.NEGATIVE_INFINITY;
+        return outward(lowLog, Math.log(high) / Math.log(2));
+    }
+
+    /**
+     * Факториал по целым точкам интервала: n! не убывает при n >= 0.
+     */
+    public Interval factorial() {
+        double first = Math.ceil(Math.max(low, 0));
+        double last = Math.floor(high);
+        if (first > last) {
+            return ENTIRE; // Целых неотрицательных точек нет
+        }
+        return new Interval(factorialBound(first), factorialBound(last));
+    }
+
+    public Interval pow(Interval exponent) {
+        if (exponent.isPoint() && exponent.low == Math.rint(exponent.low) && Math.abs(exponent.low) <= Integer.MAX_VALUE) {
+            return integerPower((int) exponent.low);
+        }
+        if (low < 0) {
+            if (Math.ceil(exponent.low) <= Math.floor(exponent.high)) {
+                // Целые показатели внутри интервала дают при отрицательном основании любой знак
+                return ENTIRE;
+            }
+            // Отрицательное основание в дробной степени дает NaN; берется неотрицательная часть
+            return high < 0 ? ENTIRE : new Interval(0, high).pow(exponent);
+        }
+        // При неотрицательном основании степень монотонна по каждому аргументу - экстремумы в углах
+        double a = Math.pow(low, exponent.low);
+        double b = Math.pow(low, exponent.high);
+        double c = Math.pow(high, exponent.low);
+        double d = Math.pow(high, exponent.high);
+        return outward(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)));
+    }
+
+    private Interval integerPower(int n) {
+        if (n == 0) {
+            return point(1);
+        }
+        if (n < 0) {
+            return point(1).divide(integerPower(-n));
+        }
+        double lowPower = Math.pow(low, n);
+        double highPower = Math.pow(high, n);
+        if (n % 2 == 1) {
+            return outward(lowPower, highPower); // Нечетная степень возрастает
+        }
+        if (contains(0)) {
+            return outward(0, Math.max(lowPower, highPower));
+        }
+        return outward(Math.min(lowPower, highPower), Math.max(lowPower, highPower));
+    }
+
+    private static double factorialBound(double n) {
+        return n > Factorials.MAX_DOUBLE_ARGUMENT ? Double.POSITIVE_INFINITY : Factorials.asDouble((int) n);
+    }
+
+    // 0 * inf считается нулем: граница интервала - предел, а не значение
+    private static double product(double a, double b) {
+        return a == 0 || b == 0 ? 0 : a * b;
+    }
+
+    private static Interval outward(double low, double high) {
+        if (Double.isNaN(low) || Double.isNaN(high)) {
+            return ENTIRE;
+        }
+        return new Interval(Math.nextDown(low), Math.nextUp(high));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Interval)) return false;
+        Interval other = (Interval) o;
+        return Double.compare(low, other.low) == 0 && Double.compare(high, other.high) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Double.hashCode(low) * 31 + Double.hashCode(high);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + low + ", " + high + "]";
+    }
+}
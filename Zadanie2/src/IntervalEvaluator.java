@@ -0,0 +1,152 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Интервальное вычисление дерева выражения: по диапазонам переменных находит диапазон,
+ * гарантированно содержащий все значения выражения, без перебора точек.
+ * Попутно отмечает подвыражения, где при некоторых значениях переменных возможны
+ * деление на ноль или выход за область определения (log, !, дробная степень),
+ * чтобы отклонить пакетное вычисление до его запуска.
+ * Интервальная арифметика не учитывает зависимость между вхождениями переменной
+ * (x - x дает [-w, w], а не 0), поэтому диапазон может быть шире точного.
+ */
+public class IntervalEvaluator {
+
+    private final Map<String, Interval> ranges;
+    private final List<String> warnings = new ArrayList<>();
+    private boolean divisionByZero;
+    private boolean domainError;
+
+    /**
+     * @param ranges Диапазоны значений переменных по имени.
+     */
+    public IntervalEvaluator(Map<String, Interval> ranges) {
+        this.ranges = ranges;
+    }
+
+    /**
+     * Вычисляет диапазон выражения. Предупреждения предыдущего вычисления сбрасываются.
+     */
+    public Interval evaluate(Node root) {
+        warnings.clear();
+        divisionByZero = false;
+        domainError = false;
+        return eval(root);
+    }
+
+    private Interval eval(Node node) {
+        switch (node.getKind()) {
+            case CONSTANT:
+                return Interval.point(node.getValue());
+            case VARIABLE: {
+                Interval range = ranges.get(node.getName());
+                if (range == null) {
+                    throw new IllegalArgumentException("Не задан диапазон переменной: " + node.getName());
+                }
+                return range;
+            }
+            case UNARY:
+                return unary(node, eval(node.getChild(0)));
+            case BINARY:
+                return binary(node, eval(node.getChild(0)), eval(node.getChild(1)));
+            default:
+                for (int i = 0; i < node.getChildCount(); i++) {
+                    eval(node.getChild(i));
+                }
+                warn("Диапазон функции " + node.getFunction().getName() + " неизвестен: " + node);
+                return Interval.ENTIRE;
+        }
+    }
+
+    private Interval unary(Node node, Interval operand) {
+        switch (node.getOpcode()) {
+            case Program.NEG:
+                return operand.negate();
+            case Program.EXP:
+                return operand.exp();
+            case Program.LOG:
+                if (operand.getLow() <= 0) {
+                    domainError(node, "аргумент логарифма " + node.getChild(0) + " принимает значения " + operand + ", нужен > 0");
+                }
+                return operand.log2();
+            case Program.FACT:
+                // Диапазон переменной под факториалом рассматривается как диапазон целых чисел
+                if (operand.getLow() < 0 || Math.floor(operand.getHigh()) < Math.ceil(operand.getLow())) {
+                    domainError(node, "аргумент факториала " + node.getChild(0) + " принимает значения " + operand
+                            + ", нужно неотрицательное целое");
+                }
+                if (operand.getHigh() > Factorials.MAX_DOUBLE_ARGUMENT) {
+                    domainError(node, "аргумент факториала " + node.getChild(0) + " может превышать " + Factorials.MAX_DOUBLE_ARGUMENT);
+                }
+                return operand.factorial();
+            default:
+                throw new IllegalArgumentException("Неизвестная функция: " + Operations.symbolOf(node.getOpcode()));
+        }
+    }
+
+    private Interval binary(Node node, Interval left, Interval right) {
+        switch (node.getOpcode()) {
+            case Program.ADD: return left.add(right);
+            case Program.SUB: return left.subtract(right);
+            case Program.MUL: return left.multiply(right);
+            case Program.DIV:
+                checkDivisor(node, right);
+                return left.divide(right);
+            case Program.IDIV:
+                checkDivisor(node, right);
+                return left.integerDivide(right);
+            case Program.POW:
+                if (left.getLow() < 0 && !(right.isPoint() && right.getLow() == Math.rint(right.getLow()))) {
+                    domainError(node, "основание " + node.getChild(0) + " может быть отрицательным при дробной степени");
+                }
+                if (left.contains(0) && right.getLow() < 0) {
+                    divisionByZero = true;
+                    warn("Возможное деление на ноль: ноль в отрицательной степени в " + node);
+                }
+                return left.pow(right);
+            default:
+                throw new IllegalArgumentException("Неизвестный оператор: " + Operations.symbolOf(node.getOpcode()));
+        }
+    }
+
+    private void checkDivisor(Node node, Interval divisor) {
+        if (divisor.contains(0)) {
+            divisionByZero = true;
+            String certainty = divisor.isPoint() ? "Деление на ноль" : "Возможное деление на ноль";
+            warn(certainty + ": делитель " + node.getChild(1) + " принимает значения " + divisor + " в " + node);
+        }
+    }
+
+    private void domainError(Node node, String message) {
+        domainError = true;
+        warn("Возможна ошибка в " + node + ": " + message);
+    }
+
+    private void warn(String message) {
+        warnings.add(message);
+    }
+
+    /**
+     * Предупреждения последнего вычисления в порядке обхода дерева.
+     */
+    public List<String> getWarnings() {
+        return Collections.unmodifiableList(new ArrayList<>(warnings));
+    }
+
+    public boolean isDivisionByZeroPossible() {
+        return divisionByZero;
+    }
+
+    public boolean isDomainErrorPossible() {
+        return domainError;
+    }
+
+    /**
+     * true, если при некоторых значениях из диапазонов вычисление может завершиться ошибкой.
+     */
+    public boolean isErrorPossible() {
+        return divisionByZero || domainError;
+    }
+}
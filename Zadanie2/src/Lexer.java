@@ -0,0 +1,241 @@
+/**
+ * Однопроходный лексический анализатор выражений.
+ * Курсор идет по CharSequence один раз: пропускает пробелы, распознает "**" и "//",
+ * унарный минус, имена функций и переменных, разбирает числа (в том числе
+ * с порядком: 1e3, 2.5E-4) в double без создания промежуточных строк.
+ * Унарный минус перед числом входит в литерал: "-2^2" означает (-2)^2.
+ */
+public final class Lexer {
+
+    // Виды токенов
+    public static final int NUMBER = 1;
+    public static final int IDENTIFIER = 2;
+    public static final int PLUS = 3;
+    public static final int MINUS = 4;
+    public static final int STAR = 5;
+    public static final int SLASH = 6;
+    public static final int CARET = 7;       // "^" или "**"
+    public static final int INT_DIVIDE = 8;  // "//" или "#"
+    public static final int BANG = 9;
+    public static final int LEFT_PAREN = 10;
+    public static final int RIGHT_PAREN = 11;
+    public static final int NEGATE = 12;     // Унарный минус перед переменной, функцией или скобкой
+    public static final int ERROR = 13;      // Недопустимый символ или некорректное число
+    public static final int COMMA = 14;      // Разделитель аргументов функции
+    public static final int EQUALS = 15;     // Определение функции: f(x)=...
+
+    // Точные степени десяти, представимые в double
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int MAX_FAST_DIGITS = 15;
+
+    private Lexer() {
+    }
+
+    /**
+     * Разбивает выражение на токены и складывает их в буфер (предыдущее содержимое буфера стирается).
+     */
+    public static void tokenize(CharSequence input, TokenBuffer tokens) {
+        tokens.reset(input);
+        tokenize(input, 0, input.length(), tokens);
+    }
+
+    /**
+     * Продолжает разбор с позиции from до to, дописывая токены в конец буфера.
+     */
+    static void tokenize(CharSequence input, int from, int to, TokenBuffer tokens) {
+        int pos = from;
+        while (pos < to) {
+            pos = next(input, pos, to, tokens);
+        }
+    }
+
+    /**
+     * Обновляет токены после правки строки: в новой строке input символы
+     * [offset, offset + inserted) заменили removed символов прежней строки.
+     * Токены до правки остаются на месте, разбор начинается с правки и
+     * заканчивается, как только очередной токен совпадет со сдвинутым старым -
+     * дальше разбор шел бы так же, и старые токены просто сдвигаются.
+     */
+    public static void retokenize(CharSequence input, TokenBuffer tokens, int offset, int removed, int inserted) {
+        int delta = inserted - removed;
+        if (offset < 0 || removed < 0 || inserted < 0 || offset + inserted > input.length()
+                || tokens.getSource().length() + delta != input.length()) {
+            tokenize(input, tokens);
+            return;
+        }
+
+        // Токен i зависит от символов до начала следующего токена включительно
+        // (заглядывание вперед для "**", "//", порядка числа и числа после унарного минуса)
+        int keep = 0;
+        while (keep < tokens.size() && dependencyEnd(tokens, keep) < offset) {
+            keep++;
+        }
+        tokens.saveTail(keep);
+        tokens.truncate(keep);
+        tokens.setSource(input);
+
+        int editEnd = offset + inserted;
+        int tail = 0;
+        int pos = keep > 0 ? tokens.end(keep - 1) : 0;
+        while (pos < input.length()) {
+            int size = tokens.size();
+            pos = next(input, pos, input.length(), tokens);
+            if (tokens.size() == size || tokens.start(size) < editEnd) {
+                continue;
+            }
+            // Ищем старый токен, начинающийся там же, где новый
+            int start = tokens.start(size);
+            while (tail < tokens.tailSize() && (tokens.tailStart(tail) < offset + removed
+                    || tokens.tailStart(tail) + delta < start)) {
+                tail++;
+            }
+            if (tail < tokens.tailSize() && tokens.tailMatches(tail, size, delta)) {
+                tokens.appendTail(tail + 1, delta);
+                return;
+            }
+        }
+    }
+
+    private static int dependencyEnd(TokenBuffer tokens, int index) {
+        // Число зависит еще от двух символов после него: "e" и знака порядка ("1e" + "3" дает 1e3)
+        int end = tokens.kind(index) == NUMBER ? tokens.end(index) + 2 : tokens.end(index);
+        if (index + 1 < tokens.size()) {
+            return Math.max(tokens.start(index + 1), end);
+        }
+        // Унарный минус в конце мог стать началом отрицательного числа
+        return tokens.kind(index) == NEGATE ? Integer.MAX_VALUE : end;
+    }
+
+    /**
+     * Пропускает пробел или разбирает один токен, начинающийся в позиции pos.
+     * @return Позиция после разобранного.
+     */
+    private static int next(CharSequence input, int pos, int to, TokenBuffer tokens) {
+        char c = input.charAt(pos);
+        if (Character.isWhitespace(c)) {
+            return pos + 1;
+        }
+        int start = pos;
+        if (isDigit(c) || c == '.') {
+            pos = number(input, pos, to, start, false, tokens);
+        } else if (Character.isLetter(c)) {
+            while (pos < to && (Character.isLetterOrDigit(input.charAt(pos)) || input.charAt(pos) == '_')) pos++;
+            tokens.add(IDENTIFIER, start, pos, 0);
+        } else if (c == '-' && isUnaryPosition(tokens)) {
+            int next = skipWhitespace(input, pos + 1, to);
+            if (next < to && (isDigit(input.charAt(next)) || input.charAt(next) == '.')) {
+                // Отрицательное число: "-2^2" по-прежнему означает (-2)^2
+                pos = number(input, next, to, start, true, tokens);
+            } else {
+                tokens.add(NEGATE, start, ++pos, 0);
+            }
+        } else {
+            int kind;
+            char next = pos + 1 < to ? input.charAt(pos + 1) : 0;
+            pos++;
+            switch (c) {
+                case '+': kind = PLUS; break;
+                case '-': kind = MINUS; break;
+                case '*':
+                    if (next == '*') { kind = CARET; pos++; } else { kind = STAR; }
+                    break;
+                case '/':
+                    if (next == '/') { kind = INT_DIVIDE; pos++; } else { kind = SLASH; }
+                    break;
+                case '^': kind = CARET; break;
+                case '#': kind = INT_DIVIDE; break;
+                case '!': kind = BANG; break;
+                case '(': kind = LEFT_PAREN; break;
+                case ')': kind = RIGHT_PAREN; break;
+                case ',': kind = COMMA; break;
+                case '=': kind = EQUALS; break;
+                default: kind = ERROR;
+            }
+            tokens.add(kind, start, pos, 0);
+        }
+        return pos;
+    }
+
+    /**
+     * Минус унарный, если стоит в начале, после открывающей скобки или после
+     * оператора (кроме постфиксного факториала).
+     */
+    private static boolean isUnaryPosition(TokenBuffer tokens) {
+        if (tokens.size() == 0) return true;
+        int last = tokens.kind(tokens.size() - 1);
+        return last != NUMBER && last != IDENTIFIER && last != RIGHT_PAREN && last != BANG;
+    }
+
+    /**
+     * Разбирает число, цифры которого начинаются в позиции pos, и добавляет токен NUMBER
+     * (или ERROR), начинающийся с tokenStart - для отрицательного числа это позиция минуса.
+     * Числа до 15 значащих цифр собираются в long и умножаются или делятся на точную
+     * степень десяти - результат совпадает с Double.parseDouble; остальные разбираются через него.
+     */
+    private static int number(CharSequence input, int pos, int to, int tokenStart, boolean negative, TokenBuffer tokens) {
+        int start = pos;
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean dot = false;
+        boolean malformed = false;
+        while (pos < to) {
+            char c = input.charAt(pos);
+            if (isDigit(c)) {
+                if (mantissa != 0 || c != '0') digits++;
+                mantissa = mantissa * 10 + (c - '0');
+                if (dot) fractionDigits++;
+            } else if (c == '.') {
+                if (dot) malformed = true;
+                dot = true;
+            } else {
+                break;
+            }
+            pos++;
+        }
+        if (malformed || pos - start == 1 && dot) {
+            tokens.add(ERROR, tokenStart, pos, 0);
+            return pos;
+        }
+        // Порядок: "e" или "E", необязательный знак и цифры; без цифр "e" - уже следующий токен
+        int exponent = 0;
+        int exponentStart = pos + (pos + 1 < to && isSign(input.charAt(pos + 1)) ? 2 : 1);
+        if (pos < to && (input.charAt(pos) == 'e' || input.charAt(pos) == 'E')
+                && exponentStart < to && isDigit(input.charAt(exponentStart))) {
+            boolean negativeExponent = input.charAt(exponentStart - 1) == '-';
+            pos = exponentStart;
+            while (pos < to && isDigit(input.charAt(pos))) {
+                // Больший порядок все равно дает бесконечность или ноль (через Double.parseDouble)
+                if (exponent < 100_000) exponent = exponent * 10 + (input.charAt(pos) - '0');
+                pos++;
+            }
+            if (negativeExponent) exponent = -exponent;
+        }
+        int scale = exponent - fractionDigits;
+        double value;
+        if (digits <= MAX_FAST_DIGITS && scale > -POWERS_OF_TEN.length && scale < POWERS_OF_TEN.length) {
+            // Оба операнда точны, поэтому одна операция дает правильно округленный результат
+            value = scale >= 0 ? mantissa * POWERS_OF_TEN[scale] : mantissa / POWERS_OF_TEN[-scale];
+        } else {
+            value = Double.parseDouble(input.subSequence(start, pos).toString());
+        }
+        tokens.add(NUMBER, tokenStart, pos, negative ? -value : value);
+        return pos;
+    }
+
+    private static int skipWhitespace(CharSequence input, int pos, int to) {
+        while (pos < to && Character.isWhitespace(input.charAt(pos))) pos++;
+        return pos;
+    }
+
+    private static boolean isSign(char c) {
+        return c == '+' || c == '-';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
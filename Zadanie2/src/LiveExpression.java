@@ -0,0 +1,65 @@
+/**
+ * Выражение, которое редактируется по частям (поле ввода с предпросмотром результата).
+ * После каждой правки токены обновляются только вокруг ее места ({@link Lexer#retokenize}),
+ * а дерево строится заново лишь при запросе и только если с прошлого раза были правки.
+ * Не потокобезопасен: используется из потока Swing, а в фон передается готовое неизменяемое дерево.
+ */
+public class LiveExpression {
+
+    private final TokenBuffer tokens = new TokenBuffer();
+    private final int maxTerms;
+    private final FunctionRegistry functions;
+
+    private boolean dirty = true;
+    private Node tree;
+    private ParseException error;
+
+    public LiveExpression(int maxTerms, FunctionRegistry functions) {
+        this.maxTerms = maxTerms;
+        this.functions = functions;
+    }
+
+    /**
+     * Заменяет выражение целиком.
+     */
+    public void reset(CharSequence text) {
+        Lexer.tokenize(text, tokens);
+        dirty = true;
+    }
+
+    /**
+     * Применяет правку: в новом тексте символы [offset, offset + inserted) заменили removed прежних.
+     */
+    public void edit(CharSequence text, int offset, int removed, int inserted) {
+        Lexer.retokenize(text, tokens, offset, removed, inserted);
+        dirty = true;
+    }
+
+    /**
+     * true, если в выражении нет ни одного токена (пустая строка или только пробелы).
+     */
+    public boolean isBlank() {
+        return tokens.size() == 0;
+    }
+
+    /**
+     * Дерево текущего выражения с сохраненной записью чисел.
+     * @throws ParseException Синтаксическая ошибка (например, выражение еще не дописано).
+     */
+    public Node parse() {
+        if (dirty) {
+            dirty = false;
+            try {
+                tree = Parser.parse(tokens, maxTerms, true, functions);
+                error = null;
+            } catch (ParseException e) {
+                tree = null;
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        return tree;
+    }
+}
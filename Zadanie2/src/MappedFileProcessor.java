@@ -0,0 +1,237 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Обработка больших файлов выражений через отображение в память (FileChannel.map).
+ * Файл делится на сегменты по границам строк, сегменты вычисляются параллельно,
+ * результаты сегментов пишутся в выходной канал в порядке файла.
+ * Строки в режиме double вычисляются через кэш выражений модели (повторяющиеся выражения
+ * не разбираются заново); точные режимы кэш не используют, и ASCII-строки для них
+ * разбираются прямо из отображенных байтов, без String на строку.
+ * Файл читается в UTF-8; формат вывода и тексты ошибок те же, что у {@link BatchProcessor}.
+ */
+public class MappedFileProcessor implements AutoCloseable {
+
+    public static final int DEFAULT_SEGMENT_BYTES = 8 << 20;
+
+    private static final byte[] ERROR_PREFIX = "Ошибка: ".getBytes(StandardCharsets.UTF_8);
+
+    private final ThreadLocal<Model> models;
+    private final Queue<Model> created = new ConcurrentLinkedQueue<>();
+    private final Model.NumericMode mode;
+    private final int segmentBytes;
+    private final int maxInFlight;
+    private final ExecutorService workers;
+
+    private long lines;
+    private long errors;
+    private long bytes;
+
+    public MappedFileProcessor(Supplier<Model> modelFactory, Model.NumericMode mode, int threads) {
+        this(modelFactory, mode, threads, DEFAULT_SEGMENT_BYTES);
+    }
+
+    public MappedFileProcessor(Supplier<Model> modelFactory, Model.NumericMode mode, int threads, int segmentBytes) {
+        if (threads <= 0 || segmentBytes <= 0) {
+            throw new IllegalArgumentException("Количество потоков и размер сегмента должны быть > 0.");
+        }
+        this.models = ThreadLocal.withInitial(() -> {
+            Model model = modelFactory.get();
+            created.add(model);
+            return model;
+        });
+        this.mode = mode;
+        this.segmentBytes = segmentBytes;
+        this.maxInFlight = threads * 2;
+        this.workers = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Вычисляет все строки файла и пишет результаты в out (не закрывая его).
+     */
+    public void process(Path input, WritableByteChannel out) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ArrayDeque<Future<Segment>> pending = new ArrayDeque<>();
+            long position = 0;
+            while (position < size) {
+                MappedByteBuffer segment = mapSegment(channel, position, size);
+                position += segment.limit();
+                if (pending.size() >= maxInFlight) {
+                    write(pending.poll(), out);
+                }
+                pending.add(workers.submit(() -> evaluate(segment)));
+            }
+            while (!pending.isEmpty()) {
+                write(pending.poll(), out);
+            }
+            bytes += size;
+        }
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+        // Модели потоков подписаны на реестр функций, который может пережить обработчик
+        Model model;
+        while ((model = created.poll()) != null) {
+            model.release();
+        }
+    }
+
+    /**
+     * Отображает сегмент от position до последнего перевода строки в пределах segmentBytes
+     * (или до конца файла). Если строка длиннее сегмента, окно увеличивается.
+     */
+    private MappedByteBuffer mapSegment(FileChannel channel, long position, long size) throws IOException {
+        long window = segmentBytes;
+        while (true) {
+            long length = Math.min(window, size - position);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            if (position + length == size) {
+                return mapped;
+            }
+            for (int i = (int) length - 1; i >= 0; i--) {
+                if (mapped.get(i) == '\n') {
+                    mapped.limit(i + 1);
+                    return mapped;
+                }
+            }
+            if (window >= Integer.MAX_VALUE / 2) {
+                throw new IOException("Строка длиннее " + window + " байт.");
+            }
+            window *= 2;
+        }
+    }
+
+    private Segment evaluate(ByteBuffer segment) {
+        Model model = models.get();
+        ByteSequence line = new ByteSequence(segment);
+        ResultBuffer results = new ResultBuffer(segment.limit() / 2);
+        int count = 0;
+        int failed = 0;
+        int start = 0;
+        int limit = segment.limit();
+        while (start < limit) {
+            int end = start;
+            while (end < limit && segment.get(end) != '\n') end++;
+            int next = end + 1;
+            if (end > start && segment.get(end - 1) == '\r') end--;
+            count++;
+            if (!isBlank(segment, start, end)) {
+                try {
+                    // ASCII-строка разбирается прямо из байтов; декодируются только строки с другими символами
+                    CharSequence expression = isAscii(segment, start, end) ? line.reset(start, end) : decode(segment, start, end);
+                    Number result = model.calculateNumber(expression, mode);
+                    results.writeAscii(BatchProcessor.format(result));
+                } catch (Exception e) {
+                    results.write(ERROR_PREFIX, 0, ERROR_PREFIX.length);
+                    byte[] message = String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8);
+                    results.write(message, 0, message.length);
+                    failed++;
+                }
+            }
+            results.write('\n');
+            start = next;
+        }
+        return new Segment(results.toByteBuffer(), count, failed);
+    }
+
+    private void write(Future<Segment> future, WritableByteChannel out) throws IOException, InterruptedException {
+        Segment segment;
+        try {
+            segment = future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка в потоке вычисления.", e.getCause());
+        }
+        while (segment.output.hasRemaining()) {
+            out.write(segment.output);
+        }
+        lines += segment.lines;
+        errors += segment.errors;
+    }
+
+    private static boolean isAscii(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        ByteBuffer view = buffer.duplicate();
+        view.position(from);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isBlank(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace((char) (buffer.get(i) & 0xFF))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Буфер результатов сегмента, отдаваемый в канал без копирования.
+     */
+    private static final class ResultBuffer extends ByteArrayOutputStream {
+        ResultBuffer(int capacity) {
+            super(Math.max(capacity, 64));
+        }
+
+        void writeAscii(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                write(text.charAt(i));
+            }
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    private static final class Segment {
+        final ByteBuffer output;
+        final int lines;
+        final int errors;
+
+        Segment(ByteBuffer output, int lines, int errors) {
+            this.output = output;
+            this.lines = lines;
+            this.errors = errors;
+        }
+    }
+}
@@ -1,215 +1,379 @@
-import java.util.*;
-
-public class Model {
-
-    private static final int MAX_TERMS = 15;
-
-    /**
-     * Главный публичный метод для вычисления выражения.
-     * @param expressionString Входная строка с уравнением.
-     * @return Результат вычисления.
-     * @throws Exception В случае ошибки в выражении.
-     */
-    public double calculate(String expressionString) throws Exception {
-        // Предобработка: заменяем операторы для унификации
-        String preparedExpression = expressionString.replace("**", "^").replace("//", "#");
-
-        List<String> tokens = tokenize(preparedExpression);
-
-        // Проверка на количество слагаемых (требование 3)
-        long termCount = tokens.stream().filter(this::isNumber).count();
-        if (termCount > MAX_TERMS) {
-            throw new IllegalArgumentException("Количество слагаемых не должно превышать " + MAX_TERMS + " (найдено: " + termCount + ").");
-        }
-
-        List<String> rpn = convertToRPN(tokens);
-        return evaluateRPN(rpn);
-    }
-
-    /**
-     * Разбивает строку на токены (числа, операторы, функции, скобки).
-     */
-    private List<String> tokenize(String expression) {
-        List<String> tokens = new ArrayList<>();
-        StringBuilder buffer = new StringBuilder();
-
-        for (int i = 0; i < expression.length(); i++) {
-            char c = expression.charAt(i);
-
-            if (Character.isDigit(c) || c == '.') {
-                buffer.append(c);
-            } else if (Character.isLetter(c)) {
-                buffer.append(c);
-            } else {
-                if (buffer.length() > 0) {
-                    tokens.add(buffer.toString());
-                    buffer.setLength(0);
-                }
-                // Обработка унарного минуса
-                if (c == '-' && (tokens.isEmpty() || isOperator(tokens.get(tokens.size() - 1)) || tokens.get(tokens.size() - 1).equals("("))) {
-                    buffer.append(c); // Начинаем собирать отрицательное число
-                } else {
-                    tokens.add(String.valueOf(c));
-                }
-            }
-        }
-
-        if (buffer.length() > 0) {
-            tokens.add(buffer.toString());
-        }
-
-        return tokens;
-    }
-
-    /**
-     * Конвертирует список токенов из инфиксной нотации в Обратную Польскую Нотацию (RPN).
-     */
-    private List<String> convertToRPN(List<String> tokens) {
-        List<String> outputQueue = new ArrayList<>();
-        Stack<String> operatorStack = new Stack<>();
-
-        for (String token : tokens) {
-            if (isNumber(token)) {
-                outputQueue.add(token);
-            } else if (isFunction(token)) {
-                operatorStack.push(token);
-            } else if (isOperator(token)) {
-                while (!operatorStack.isEmpty() && isOperator(operatorStack.peek()) &&
-                        getPrecedence(operatorStack.peek()) >= getPrecedence(token)) {
-                    outputQueue.add(operatorStack.pop());
-                }
-                operatorStack.push(token);
-            } else if (token.equals("(")) {
-                operatorStack.push(token);
-            } else if (token.equals(")")) {
-                while (!operatorStack.isEmpty() && !operatorStack.peek().equals("(")) {
-                    outputQueue.add(operatorStack.pop());
-                }
-                if (operatorStack.isEmpty()) throw new IllegalArgumentException("Ошибка в расстановке скобок (нет открывающей).");
-                operatorStack.pop(); // Выкидываем '('
-
-                // Если после скобки на стеке оказалась функция, выталкиваем и ее
-                if (!operatorStack.isEmpty() && isFunction(operatorStack.peek())) {
-                    outputQueue.add(operatorStack.pop());
-                }
-            }
-        }
-
-        while (!operatorStack.isEmpty()) {
-            String op = operatorStack.pop();
-            if (op.equals("(")) throw new IllegalArgumentException("Ошибка в расстановке скобок (нет закрывающей).");
-            outputQueue.add(op);
-        }
-
-        return outputQueue;
-    }
-
-    /**
-     * Вычисляет результат из списка токенов в RPN.
-     */
-    private double evaluateRPN(List<String> rpnTokens) throws ArithmeticException {
-        Stack<Double> valueStack = new Stack<>();
-
-        for (String token : rpnTokens) {
-            if (isNumber(token)) {
-                valueStack.push(Double.parseDouble(token));
-            } else if (isFunction(token) || isOperator(token)) {
-                double result;
-                // Унарные операторы/функции
-                if (token.equals("!") || isFunction(token)) {
-                    if (valueStack.isEmpty()) throw new IllegalArgumentException("Недостаточно операндов для функции " + token);
-                    double operand = valueStack.pop();
-                    switch (token) {
-                        case "!":
-                            result = factorial(operand);
-                            break;
-                        case "log": // Логарифм по основанию 2
-                            if (operand <= 0) throw new ArithmeticException("Аргумент логарифма должен быть > 0.");
-                            result = Math.log(operand) / Math.log(2);
-                            break;
-                        case "exp":
-                            result = Math.exp(operand);
-                            break;
-                        default:
-                            throw new IllegalArgumentException("Неизвестная функция: " + token);
-                    }
-                } else { // Бинарные операторы
-                    if (valueStack.size() < 2) throw new IllegalArgumentException("Недостаточно операндов для оператора " + token);
-                    double rightOperand = valueStack.pop();
-                    double leftOperand = valueStack.pop();
-                    switch (token) {
-                        case "+": result = leftOperand + rightOperand; break;
-                        case "-": result = leftOperand - rightOperand; break;
-                        case "*": result = leftOperand * rightOperand; break;
-                        case "/":
-                            if (rightOperand == 0) throw new ArithmeticException("Деление на ноль.");
-                            result = leftOperand / rightOperand;
-                            break;
-                        case "^": result = Math.pow(leftOperand, rightOperand); break;
-                        case "#":
-                            if (rightOperand == 0) throw new ArithmeticException("Деление на ноль.");
-                            result = Math.floor(leftOperand / rightOperand);
-                            break;
-                        default: throw new IllegalArgumentException("Неизвестный оператор: " + token);
-                    }
-                }
-                valueStack.push(result);
-            }
-        }
-        if (valueStack.size() != 1) {
-            throw new IllegalArgumentException("Выражение составлено некорректно.");
-        }
-        return valueStack.pop();
-    }
-
-    // --- Вспомогательные методы ---
-
-    private double factorial(double n) {
-        if (n < 0 || n != Math.floor(n)) {
-            throw new ArithmeticException("Факториал определен только для неотрицательных целых чисел.");
-        }
-        if (n > 20) { // Избегаем переполнения long
-            throw new ArithmeticException("Слишком большое число для вычисления факториала (> 20).");
-        }
-        double result = 1;
-        for (int i = 2; i <= n; i++) {
-            result *= i;
-        }
-        return result;
-    }
-
-    private boolean isNumber(String token) {
-        try {
-            Double.parseDouble(token);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
-    }
-
-    private boolean isFunction(String token) {
-        return token.equalsIgnoreCase("log") || token.equalsIgnoreCase("exp");
-    }
-
-    private boolean isOperator(String token) {
-        return "+-*/^#!".contains(token);
-    }
-
-    private int getPrecedence(String operator) {
-        switch (operator) {
-            case "!":
-                return 4; // У факториала высший приоритет
-            case "^":
-                return 3;
-            case "*":
-            case "/":
-            case "#":
-                return 2;
-            case "+":
-            case "-":
-                return 1;
-            default:
-                return 0;
-        }
-    }
+import java.io.IOException;
+import java.math.MathContext;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+public class Model {
+
+    /**
+     * Способ выполнения выражений, возвращаемых {@link #compile(String)}.
+     */
+    public enum Backend {
+        INTERPRETER, // Интерпретатор байткода Program
+        BYTECODE     // Сгенерированный JVM-класс; при ошибке генерации - интерпретатор
+    }
+
+    /**
+     * Числовой режим для {@link #calculateNumber(String)}.
+     */
+    public enum NumericMode {
+        DOUBLE,  // double, как в calculate
+        DECIMAL, // BigDecimal с точностью getMathContext()
+        INTEGER  // BigInteger без ограничения разрядности
+    }
+
+    private static final int MAX_TERMS = 15;
+    private static final int DEFAULT_CACHE_CAPACITY = 256;
+
+    // Кэш скомпилированных выражений
+    private final ExpressionCache<Program> cache;
+
+    private final Optimizer optimizer = new Optimizer();
+    private final FunctionRegistry functions;
+    private final Runnable clearCache;
+    private volatile Backend backend = Backend.INTERPRETER;
+    private volatile NumericMode numericMode = NumericMode.DOUBLE;
+    private volatile MathContext mathContext = MathContext.DECIMAL128;
+    private volatile CalculatorMetrics metrics; // null - метрики не собираются
+
+    // Стек интерпретатора и буфер токенов переиспользуются в рамках одного потока
+    private final ThreadLocal<double[]> stacks = ThreadLocal.withInitial(() -> new double[16]);
+    private final ThreadLocal<TokenBuffer> tokenBuffers = ThreadLocal.withInitial(TokenBuffer::new);
+    private static final double[] NO_VALUES = new double[0];
+
+    public Model() {
+        this(DEFAULT_CACHE_CAPACITY);
+    }
+
+    public Model(int cacheCapacity) {
+        this(cacheCapacity, new FunctionRegistry());
+    }
+
+    /**
+     * @param functions Реестр функций; при его изменении кэш скомпилированных выражений очищается.
+     * Модель подписывается на реестр - если он живет дольше модели, ее нужно освободить через {@link #release()}.
+     */
+    public Model(int cacheCapacity, FunctionRegistry functions) {
+        this.cache = new ExpressionCache<>(cacheCapacity);
+        this.functions = functions;
+        this.clearCache = cache::clear;
+        functions.addChangeListener(clearCache);
+    }
+
+    /**
+     * Отписывает модель от реестра функций, иначе реестр удерживает ее вместе с кэшем.
+     * После этого изменения реестра не сбрасывают кэш, поэтому модель больше не используется.
+     */
+    public void release() {
+        functions.removeChangeListener(clearCache);
+    }
+
+    /**
+     * Главный публичный метод для вычисления выражения.
+     * @param expressionString Входная строка с уравнением.
+     * @return Результат вычисления.
+     * @throws Exception В случае ошибки в выражении.
+     */
+    public double calculate(String expressionString) throws Exception {
+        return calculateDouble(expressionString);
+    }
+
+    private double calculateDouble(CharSequence expressionString) {
+        CalculatorMetrics metrics = this.metrics;
+        if (metrics == null) {
+            return evaluateDouble(expressionString, null);
+        }
+        long start = System.nanoTime();
+        try {
+            return evaluateDouble(expressionString, metrics);
+        } catch (RuntimeException e) {
+            metrics.recordError(e);
+            throw e;
+        } finally {
+            metrics.recordCalculation(expressionString.length(), System.nanoTime() - start);
+        }
+    }
+
+    private double evaluateDouble(CharSequence expressionString, CalculatorMetrics metrics) {
+        Program program = compileCached(expressionString);
+        requireNoVariables(program);
+        long start = metrics != null ? System.nanoTime() : 0;
+        double result = program.evaluate(NO_VALUES, stackFor(program));
+        lap(metrics, CalculatorMetrics.Phase.EVALUATE, start);
+        return result;
+    }
+
+    /**
+     * Вычисляет выражение в текущем числовом режиме.
+     * Точные режимы разбирают выражение заново и не используют кэш и оптимизатор:
+     * свертка констант в double потеряла бы точность.
+     * @param expressionString Входная строка с уравнением.
+     * @return Double, BigDecimal или BigInteger в зависимости от режима.
+     * @throws Exception В случае ошибки в выражении.
+     */
+    public Number calculateNumber(String expressionString) throws Exception {
+        return calculateNumber(expressionString, numericMode);
+    }
+
+    /**
+     * Вычисляет выражение в заданном числовом режиме, не меняя режим модели.
+     * Выражение может быть любой CharSequence (например, строкой файла поверх отображенных байтов):
+     * кэш ищет по ней без создания строки, строка нужна только для нового выражения.
+     */
+    public Number calculateNumber(CharSequence expressionString, NumericMode mode) throws Exception {
+        if (mode == NumericMode.DOUBLE) {
+            return calculateDouble(expressionString);
+        }
+        CalculatorMetrics metrics = this.metrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        try {
+            TokenBuffer tokens = tokenBuffers.get();
+            Lexer.tokenize(expressionString, tokens);
+            long time = lap(metrics, CalculatorMetrics.Phase.LEX, start);
+            Node tree = Parser.parse(tokens, MAX_TERMS, true, functions);
+            time = lap(metrics, CalculatorMetrics.Phase.PARSE, time);
+            Number result = calculateNumber(tree, mode);
+            lap(metrics, CalculatorMetrics.Phase.EVALUATE, time);
+            return result;
+        } catch (RuntimeException e) {
+            if (metrics != null) metrics.recordError(e);
+            throw e;
+        } finally {
+            if (metrics != null) metrics.recordCalculation(expressionString.length(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Вычисляет выражение прямо из CharSequence, минуя кэш, -
+     * для потоковой обработки файлов, где строка на каждое выражение слишком дорога.
+     */
+    public Number calculateUncached(CharSequence expression, NumericMode mode) {
+        TokenBuffer tokens = tokenBuffers.get();
+        Lexer.tokenize(expression, tokens);
+        return calculateNumber(Parser.parse(tokens, MAX_TERMS, mode != NumericMode.DOUBLE, functions), mode);
+    }
+
+    /**
+     * Вычисляет уже разобранное дерево выражения (например, из {@link LiveExpression}).
+     * Для точных режимов дерево должно хранить исходную запись чисел.
+     */
+    public Number calculateNumber(Node tree, NumericMode mode) {
+        switch (mode) {
+            case INTEGER:
+                return new IntegerEvaluator().evaluate(tree);
+            case DECIMAL:
+                return new DecimalEvaluator(mathContext).evaluate(tree);
+            default:
+                Node optimized = optimizer.optimize(tree);
+                Program program = ProgramCompiler.compile(optimized, Optimizer.eliminated(tree, optimized));
+                requireNoVariables(program);
+                return program.evaluate(NO_VALUES, stackFor(program));
+        }
+    }
+
+    /**
+     * Создает выражение для предпросмотра при вводе с тем же ограничением на количество слагаемых.
+     */
+    public LiveExpression createLiveExpression() {
+        return new LiveExpression(MAX_TERMS, functions);
+    }
+
+    /**
+     * Компилирует выражение с именованными переменными (например, "x*2+log(y)")
+     * для многократного и пакетного вычисления.
+     * @param expressionString Входная строка с уравнением.
+     * @return Скомпилированное выражение.
+     */
+    public CompiledExpression compile(String expressionString) {
+        Program program = compileCached(expressionString);
+        DoubleEvaluator generated = backend == Backend.BYTECODE ? program.getGenerated() : null;
+        return new CompiledExpression(expressionString, program, generated);
+    }
+
+    /**
+     * Компилирует выражение вместе с символьными частными производными для вычисления
+     * значения и градиента за один проход (например, для задач оптимизации).
+     * @param variables Переменные дифференцирования; если не заданы - все переменные выражения.
+     * @throws ArithmeticException Выражение содержит недифференцируемую операцию (!, //, внешнюю функцию).
+     */
+    public CompiledGradient gradient(String expressionString, String... variables) {
+        TokenBuffer tokens = tokenBuffers.get();
+        Lexer.tokenize(expressionString, tokens);
+        Node tree = Parser.parse(tokens, MAX_TERMS, false, functions);
+        Node optimized = optimizer.optimize(tree);
+        String[] names = variables.length > 0 ? variables.clone() : Differentiator.variables(optimized);
+        Node[] roots = new Node[names.length + 1];
+        roots[0] = optimized;
+        for (int i = 0; i < names.length; i++) {
+            roots[i + 1] = optimizer.optimize(Differentiator.derivative(optimized, names[i]));
+        }
+        Program program = ProgramCompiler.compile(roots, Optimizer.eliminated(tree, optimized));
+        return new CompiledGradient(expressionString, program, names, Arrays.copyOfRange(roots, 1, roots.length));
+    }
+
+    /**
+     * Интервальный анализ выражения: диапазон значений по диапазонам переменных,
+     * заданным в evaluator. После вызова evaluator содержит предупреждения о возможном
+     * делении на ноль и выходе за область определения - по ним можно отклонить
+     * пакетное вычисление до его запуска.
+     * @return Диапазон, содержащий все значения выражения.
+     */
+    public Interval analyzeRange(String expressionString, IntervalEvaluator evaluator) {
+        TokenBuffer tokens = tokenBuffers.get();
+        Lexer.tokenize(expressionString, tokens);
+        Node tree = Parser.parse(tokens, MAX_TERMS, false, functions);
+        return evaluator.evaluate(optimizer.optimize(tree));
+    }
+
+    /**
+     * Сохраняет скомпилированные выражения из кэша в файл для быстрого старта (см. {@link ProgramStore}).
+     * @return Количество сохраненных выражений.
+     */
+    public int saveCompiled(Path file) throws IOException {
+        Map<String, Program> programs = cache.snapshot();
+        ProgramStore.save(file, programs, functions);
+        return programs.size();
+    }
+
+    /**
+     * Загружает в кэш выражения, сохраненные {@link #saveCompiled(Path)}: их вычисление
+     * сразу идет без разбора. Кэш должен вмещать нужное количество выражений.
+     * @return Количество загруженных выражений.
+     * @throws IOException Файл поврежден, другой версии или создан с другим набором функций.
+     */
+    public int loadCompiled(Path file) throws IOException {
+        long generation = cache.getGeneration();
+        Map<String, Program> programs = ProgramStore.load(file, functions);
+        programs.forEach((expression, program) -> cache.put(expression, program, generation));
+        return programs.size();
+    }
+
+    /**
+     * Определяет функцию выражением вида "f(x) = x^2 + 1" и регистрирует ее.
+     * Вызовы функции подставляются в выражения при компиляции.
+     * @return Зарегистрированная функция.
+     */
+    public CalculatorFunction define(String definition) {
+        TokenBuffer tokens = tokenBuffers.get();
+        Lexer.tokenize(definition, tokens);
+        CalculatorFunction function = Parser.parseDefinition(tokens, MAX_TERMS, functions);
+        functions.register(function);
+        return function;
+    }
+
+    /**
+     * Похожа ли строка на определение функции (содержит '=').
+     */
+    public static boolean isDefinition(String expression) {
+        return expression.indexOf('=') >= 0;
+    }
+
+    public FunctionRegistry getFunctions() {
+        return functions;
+    }
+
+    public Backend getBackend() {
+        return backend;
+    }
+
+    public void setBackend(Backend backend) {
+        this.backend = backend;
+    }
+
+    public CalculatorMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Подключает сбор метрик для calculate и calculateNumber (null - отключить).
+     * Одни метрики можно подключить к нескольким моделям, например к моделям потоков пакетной обработки.
+     */
+    public void setMetrics(CalculatorMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public NumericMode getNumericMode() {
+        return numericMode;
+    }
+
+    public void setNumericMode(NumericMode numericMode) {
+        this.numericMode = numericMode;
+    }
+
+    public MathContext getMathContext() {
+        return mathContext;
+    }
+
+    /**
+     * Точность и округление режима DECIMAL (по умолчанию 34 знака, HALF_EVEN).
+     */
+    public void setMathContext(MathContext mathContext) {
+        this.mathContext = mathContext;
+    }
+
+    /**
+     * Статистика кэша скомпилированных выражений (попадания, промахи, вытеснения).
+     */
+    public ExpressionCache<?> getCache() {
+        return cache;
+    }
+
+    private Program compileCached(CharSequence expressionString) {
+        // Повторно встречающиеся формулы не разбираются заново. Ключ - строка как есть:
+        // разбирается та же строка, поэтому результат не зависит от содержимого кэша
+        Program program = cache.get(expressionString);
+        if (program == null) {
+            // Если реестр функций изменится во время компиляции, программа может оказаться устаревшей
+            long generation = cache.getGeneration();
+            program = compileProgram(expressionString);
+            cache.put(expressionString.toString(), program, generation);
+        }
+        return program;
+    }
+
+    /**
+     * Компилирует выражение в программу: лексический анализ, разбор в дерево
+     * с проверкой на количество слагаемых, оптимизация и генерация байткода.
+     * Разбирается исходная строка, чтобы позиции ошибок указывали на ввод пользователя.
+     */
+    private Program compileProgram(CharSequence expressionString) {
+        CalculatorMetrics metrics = this.metrics;
+        long time = metrics != null ? System.nanoTime() : 0;
+        TokenBuffer tokens = tokenBuffers.get();
+        Lexer.tokenize(expressionString, tokens);
+        time = lap(metrics, CalculatorMetrics.Phase.LEX, time);
+        Node tree = Parser.parse(tokens, MAX_TERMS, false, functions);
+        time = lap(metrics, CalculatorMetrics.Phase.PARSE, time);
+        Node optimized = optimizer.optimize(tree);
+        time = lap(metrics, CalculatorMetrics.Phase.OPTIMIZE, time);
+        Program program = ProgramCompiler.compile(optimized, Optimizer.eliminated(tree, optimized));
+        lap(metrics, CalculatorMetrics.Phase.COMPILE, time);
+        return program;
+    }
+
+    /**
+     * Записывает время фазы, начавшейся в start, и возвращает момент ее окончания.
+     */
+    private static long lap(CalculatorMetrics metrics, CalculatorMetrics.Phase phase, long start) {
+        if (metrics == null) return 0;
+        long now = System.nanoTime();
+        metrics.recordPhase(phase, now - start);
+        return now;
+    }
+
+    private static void requireNoVariables(Program program) {
+        if (program.getVariableCount() > 0) {
+            throw new UnknownVariableException(program.getVariables()[0]);
+        }
+    }
+
+    private double[] stackFor(Program program) {
+        double[] stack = stacks.get();
+        if (stack.length < program.getMaxStackDepth()) {
+            stack = new double[program.getMaxStackDepth()];
+            stacks.set(stack);
+        }
+        return stack;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,186 @@
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Узел дерева выражения (AST). Неизменяем; равенство и хеш структурные,
+ * поэтому одинаковые поддеревья равны между собой. Константы сравниваются
+ * и по исходной записи: разные числа могут округлиться до одного double.
+ */
+public final class Node {
+
+    public enum Kind {
+        CONSTANT,
+        VARIABLE,
+        UNARY,
+        BINARY,
+        CALL     // Вызов внешней функции из реестра
+    }
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Kind kind;
+    private final int opcode;
+    private final double value;
+    private final String name; // Имя переменной или исходная запись числа (для точных вычислений)
+    private final CalculatorFunction function;
+    private final Node[] children;
+    private final int size;
+    private final int hash;
+    private final boolean pure; // Нет вызовов функций с побочными эффектами
+
+    private Node(Kind kind, int opcode, double value, String name, CalculatorFunction function, Node[] children) {
+        this.kind = kind;
+        this.opcode = opcode;
+        this.value = value;
+        this.name = name;
+        this.function = function;
+        this.children = children;
+        int size = 1;
+        boolean pure = function == null || function.isPure();
+        int hash = kind.hashCode() * 31 + opcode;
+        hash = hash * 31 + Double.hashCode(value);
+        hash = hash * 31 + Objects.hashCode(name);
+        hash = hash * 31 + (function != null ? function.hashCode() : 0);
+        for (Node child : children) {
+            size += child.size;
+            hash = hash * 31 + child.hash;
+            pure &= child.pure;
+        }
+        this.size = size;
+        this.hash = hash;
+        this.pure = pure;
+    }
+
+    // --- Фабричные методы ---
+
+    public static Node constant(double value) {
+        return new Node(Kind.CONSTANT, Program.PUSH, value, null, null, NO_CHILDREN);
+    }
+
+    /**
+     * Константа с исходной записью числа, из которой точные режимы вычисления
+     * получают значение без округления до double.
+     */
+    public static Node constant(double value, String literal) {
+        return new Node(Kind.CONSTANT, Program.PUSH, value, literal, null, NO_CHILDREN);
+    }
+
+    public static Node variable(String name) {
+        return new Node(Kind.VARIABLE, Program.LOAD, 0, name, null, NO_CHILDREN);
+    }
+
+    public static Node unary(int opcode, Node operand) {
+        return new Node(Kind.UNARY, opcode, 0, null, null, new Node[]{operand});
+    }
+
+    public static Node binary(int opcode, Node left, Node right) {
+        return new Node(Kind.BINARY, opcode, 0, null, null, new Node[]{left, right});
+    }
+
+    /**
+     * Вызов функции из реестра с прямой ссылкой на нее.
+     */
+    public static Node call(CalculatorFunction function, Node... arguments) {
+        if (arguments.length != function.getArity()) {
+            throw new IllegalArgumentException("Функция " + function.getName() + " ожидает аргументов: " + function.getArity());
+        }
+        return new Node(Kind.CALL, Program.CALL, 0, null, function, arguments.length == 0 ? NO_CHILDREN : arguments.clone());
+    }
+
+    /**
+     * Создает узел той же операции с другими операндами.
+     */
+    public Node withChildren(Node... newChildren) {
+        if (Arrays.equals(children, newChildren)) return this;
+        return new Node(kind, opcode, value, name, function, newChildren);
+    }
+
+    /**
+     * Заменяет переменные с именами names на соответствующие поддеревья values
+     * (подстановка аргументов в тело функции-выражения).
+     */
+    public Node substitute(String[] names, Node[] values) {
+        if (kind == Kind.VARIABLE) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) return values[i];
+            }
+            return this;
+        }
+        if (children.length == 0) return this;
+        Node[] substituted = new Node[children.length];
+        for (int i = 0; i < children.length; i++) {
+            substituted[i] = children[i].substitute(names, values);
+        }
+        return withChildren(substituted);
+    }
+
+    // --- Getters ---
+
+    public Kind getKind() { return kind; }
+    public int getOpcode() { return opcode; }
+    public double getValue() { return value; }
+    public String getName() { return name; }
+    public String getLiteral() { return kind == Kind.CONSTANT ? name : null; }
+    public CalculatorFunction getFunction() { return function; }
+    public int getChildCount() { return children.length; }
+    public Node getChild(int index) { return children[index]; }
+    public Node[] getChildren() { return children.clone(); }
+
+    /**
+     * Количество узлов в поддереве.
+     */
+    public int size() { return size; }
+
+    public boolean isConstant() { return kind == Kind.CONSTANT; }
+
+    /**
+     * true, если в поддереве нет вызовов функций с побочными эффектами:
+     * такое поддерево можно вычислить один раз и использовать повторно.
+     */
+    public boolean isPure() { return pure; }
+
+    public boolean isConstant(double expected) {
+        return kind == Kind.CONSTANT && value == expected;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Node)) return false;
+        Node other = (Node) o;
+        return hash == other.hash && kind == other.kind && opcode == other.opcode
+                && Double.doubleToLongBits(value) == Double.doubleToLongBits(other.value)
+                && Objects.equals(name, other.name)
+                && function == other.function
+                && Arrays.equals(children, other.children);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case CONSTANT:
+                return value == (long) value ? String.valueOf((long) value) : String.valueOf(value);
+            case VARIABLE:
+                return name;
+            case CALL: {
+                StringBuilder call = new StringBuilder(function.getName()).append('(');
+                for (int i = 0; i < children.length; i++) {
+                    if (i > 0) call.append(", ");
+                    call.append(children[i]);
+                }
+                return call.append(')').toString();
+            }
+            case UNARY:
+                if (opcode == Program.FACT) return "(" + children[0] + ")!";
+                if (opcode == Program.NEG) return "-(" + children[0] + ")";
+                return Operations.symbolOf(opcode) + "(" + children[0] + ")";
+            default:
+                return "(" + children[0] + " " + Operations.symbolOf(opcode) + " " + children[1] + ")";
+        }
+    }
+}
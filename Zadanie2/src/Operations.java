@@ -0,0 +1,97 @@
+import java.util.concurrent.CancellationException;
+
+/**
+ * Реализация операций калькулятора с проверкой ошибок.
+ * Используется интерпретатором скомпилированных программ и оптимизатором.
+ */
+public final class Operations {
+
+    private Operations() {
+    }
+
+    /**
+     * Применяет унарную операцию с опкодом из {@link Program}.
+     */
+    public static double apply(int opcode, double operand) {
+        switch (opcode) {
+            case Program.NEG: return -operand;
+            case Program.FACT: return factorial(operand);
+            case Program.LOG: return log2(operand);
+            case Program.EXP: return Math.exp(operand);
+            default: throw new IllegalArgumentException("Неизвестная унарная операция: " + opcode);
+        }
+    }
+
+    /**
+     * Применяет бинарную операцию с опкодом из {@link Program}.
+     */
+    public static double apply(int opcode, double left, double right) {
+        switch (opcode) {
+            case Program.ADD: return left + right;
+            case Program.SUB: return left - right;
+            case Program.MUL: return left * right;
+            case Program.DIV: return divide(left, right);
+            case Program.POW: return Math.pow(left, right);
+            case Program.IDIV: return integerDivide(left, right);
+            default: throw new IllegalArgumentException("Неизвестный оператор: " + opcode);
+        }
+    }
+
+    /**
+     * Прерывает долгое точное вычисление, если поток был прерван
+     * (например, при отмене фонового вычисления в AsyncEvaluator).
+     */
+    public static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Вычисление отменено.");
+        }
+    }
+
+    public static boolean isUnary(int opcode) {
+        return opcode == Program.FACT || opcode == Program.LOG || opcode == Program.EXP || opcode == Program.NEG;
+    }
+
+    /**
+     * Запись операции в выражении (для отладочного вывода).
+     */
+    public static String symbolOf(int opcode) {
+        switch (opcode) {
+            case Program.ADD: return "+";
+            case Program.SUB: return "-";
+            case Program.MUL: return "*";
+            case Program.DIV: return "/";
+            case Program.POW: return "^";
+            case Program.IDIV: return "//";
+            case Program.FACT: return "!";
+            case Program.NEG: return "-";
+            case Program.LOG: return "log";
+            case Program.EXP: return "exp";
+            default: return "?" + opcode;
+        }
+    }
+
+    public static double divide(double left, double right) {
+        if (right == 0) throw new DivisionByZeroException();
+        return left / right;
+    }
+
+    public static double integerDivide(double left, double right) {
+        if (right == 0) throw new DivisionByZeroException();
+        return Math.floor(left / right);
+    }
+
+    public static double log2(double operand) {
+        if (operand <= 0) throw new ArithmeticException("Аргумент логарифма должен быть > 0.");
+        return Math.log(operand) / Math.log(2);
+    }
+
+    public static double factorial(double n) {
+        if (n < 0 || n != Math.floor(n)) {
+            throw new ArithmeticException("Факториал определен только для неотрицательных целых чисел.");
+        }
+        if (n > Factorials.MAX_DOUBLE_ARGUMENT) { // Избегаем переполнения double
+            throw new ArithmeticException("Слишком большое число для вычисления факториала (> " + Factorials.MAX_DOUBLE_ARGUMENT + ").");
+        }
+        return Factorials.asDouble((int) n);
+    }
+}
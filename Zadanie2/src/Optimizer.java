@@ -0,0 +1,112 @@
+/**
+ * Оптимизирующий проход по дереву выражения перед компиляцией:
+ * сворачивает константные подвыражения (включая log, exp, ! и чистые функции из реестра)
+ * и убирает тождественные операции вида x*1, x-0, x^1.
+ * Упрощения сохраняют результат в точности, включая знак нуля: x+0 и 0-x
+ * не упрощаются, потому что при x = -0 и x = 0 они дают +0, а не x и -x.
+ */
+public class Optimizer {
+
+    /**
+     * Оптимизирует дерево снизу вверх.
+     * @return Упрощенное дерево (исходное не изменяется).
+     */
+    public Node optimize(Node node) {
+        if (node.getChildCount() == 0 && node.getKind() != Node.Kind.CALL) {
+            return node;
+        }
+        Node[] children = node.getChildren();
+        for (int i = 0; i < children.length; i++) {
+            children[i] = optimize(children[i]);
+        }
+        Node rebuilt = node.withChildren(children);
+
+        Node folded = fold(rebuilt);
+        if (folded != null) {
+            return folded;
+        }
+        switch (node.getKind()) {
+            case UNARY: return simplifyUnary(rebuilt);
+            case BINARY: return simplifyBinary(rebuilt);
+            default: return rebuilt;
+        }
+    }
+
+    /**
+     * Сколько узлов удалено при оптимизации дерева.
+     */
+    public static int eliminated(Node original, Node optimized) {
+        return original.size() - optimized.size();
+    }
+
+    /**
+     * Вычисляет операцию над константами. Если вычисление приводит к ошибке
+     * (например, деление на ноль), узел остается как есть и ошибка возникнет при вычислении.
+     */
+    private Node fold(Node node) {
+        for (int i = 0; i < node.getChildCount(); i++) {
+            if (!node.getChild(i).isConstant()) return null;
+        }
+        if (node.getKind() == Node.Kind.CALL && !node.getFunction().isPure()) {
+            return null; // Результат может меняться от вызова к вызову
+        }
+        try {
+            if (node.getKind() == Node.Kind.CALL) {
+                double[] arguments = new double[node.getChildCount()];
+                for (int i = 0; i < arguments.length; i++) {
+                    arguments[i] = node.getChild(i).getValue();
+                }
+                return Node.constant(node.getFunction().apply(arguments, 0));
+            }
+            double value = node.getKind() == Node.Kind.UNARY
+                    ? Operations.apply(node.getOpcode(), node.getChild(0).getValue())
+                    : Operations.apply(node.getOpcode(), node.getChild(0).getValue(), node.getChild(1).getValue());
+            return Node.constant(value);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    private Node simplifyUnary(Node node) {
+        Node operand = node.getChild(0);
+        // -(-x) = x
+        if (node.getOpcode() == Program.NEG && operand.getOpcode() == Program.NEG && operand.getKind() == Node.Kind.UNARY) {
+            return operand.getChild(0);
+        }
+        return node;
+    }
+
+    private Node simplifyBinary(Node node) {
+        Node left = node.getChild(0);
+        Node right = node.getChild(1);
+        switch (node.getOpcode()) {
+            case Program.ADD:
+                // x + (-0) = x при любом x; x + 0 - нет: -0 + 0 = +0
+                if (isZero(right, true)) return left;
+                if (isZero(left, true)) return right;
+                break;
+            case Program.SUB:
+                // x - 0 = x и -0 - x = -x при любом x; 0 - x - нет: 0 - 0 = +0, а -(0) = -0
+                if (isZero(right, false)) return left;
+                if (isZero(left, true)) return Node.unary(Program.NEG, right);
+                break;
+            case Program.MUL:
+                if (right.isConstant(1)) return left;
+                if (left.isConstant(1)) return right;
+                if (right.isConstant(-1)) return Node.unary(Program.NEG, left);
+                if (left.isConstant(-1)) return Node.unary(Program.NEG, right);
+                break;
+            case Program.DIV:
+                if (right.isConstant(1)) return left;
+                break;
+            case Program.POW:
+                if (right.isConstant(1)) return left;
+                break;
+        }
+        return node;
+    }
+
+    private static boolean isZero(Node node, boolean negative) {
+        return node.isConstant(0) && (Double.doubleToRawLongBits(node.getValue()) < 0) == negative;
+    }
+}
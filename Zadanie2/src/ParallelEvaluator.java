@@ -0,0 +1,88 @@
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Параллельное пакетное вычисление скомпилированных выражений.
+ * Диапазон строк рекурсивно делится пополам, пока не станет меньше порога,
+ * после чего каждый кусок вычисляется последовательно в своем потоке ForkJoinPool.
+ * Скомпилированное выражение неизменяемо, поэтому один экземпляр
+ * безопасно использовать из всех потоков пула.
+ */
+public class ParallelEvaluator implements AutoCloseable {
+
+    public static final int DEFAULT_THRESHOLD = 16_384;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    public ParallelEvaluator() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param parallelism Количество потоков пула.
+     * @param threshold Размер куска строк, который уже не делится дальше.
+     */
+    public ParallelEvaluator(int parallelism, int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Порог разбиения должен быть > 0.");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.threshold = threshold;
+    }
+
+    /**
+     * Вычисляет выражение для каждой строки столбцов и записывает результаты в out.
+     * @param columns Столбцы значений в порядке {@link CompiledExpression#getVariables()}.
+     */
+    public void evaluate(CompiledExpression expression, double[][] columns, double[] out) {
+        pool.invoke(new EvaluateTask(expression, columns, out, 0, out.length));
+    }
+
+    public void evaluate(CompiledExpression expression, Map<String, double[]> columns, double[] out) {
+        evaluate(expression, expression.columnsOf(columns), out);
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private class EvaluateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CompiledExpression expression;
+        private final double[][] columns;
+        private final double[] out;
+        private final int from;
+        private final int to;
+
+        EvaluateTask(CompiledExpression expression, double[][] columns, double[] out, int from, int to) {
+            this.expression = expression;
+            this.columns = columns;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                expression.evaluate(columns, out, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new EvaluateTask(expression, columns, out, from, middle),
+                    new EvaluateTask(expression, columns, out, middle, to));
+        }
+    }
+}
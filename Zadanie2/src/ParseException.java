@@ -0,0 +1,49 @@
+/**
+ * Синтаксическая ошибка в выражении с указанием места во входной строке.
+ */
+public class ParseException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Вид ошибки: по нему ошибки считаются по категориям, не разбирая текст сообщения.
+     */
+    public enum Kind {
+        SYNTAX,
+        BRACKETS,       // Непарные скобки
+        TOO_MANY_TERMS  // Превышено ограничение на количество слагаемых
+    }
+
+    private final int position;
+    private final Kind kind;
+
+    /**
+     * @param message Описание ошибки.
+     * @param position Смещение символа (с нуля), на котором обнаружена ошибка.
+     */
+    public ParseException(String message, int position) {
+        this(message, position, Kind.SYNTAX);
+    }
+
+    public ParseException(String message, int position, Kind kind) {
+        super(withPosition(message, position));
+        this.position = position;
+        this.kind = kind;
+    }
+
+    private static String withPosition(String message, int position) {
+        String text = message.endsWith(".") ? message.substring(0, message.length() - 1) : message;
+        return text + " (позиция " + (position + 1) + ").";
+    }
+
+    /**
+     * Смещение символа во входной строке (с нуля).
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+}
@@ -0,0 +1,322 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Нисходящий парсер выражений с приоритетами операторов (Pratt).
+ * За один проход по токенам строит дерево выражения, проверяет
+ * ограничение на количество слагаемых и сообщает позицию синтаксической ошибки.
+ * Функции ищутся в {@link FunctionRegistry}; аргументы разделяются запятыми.
+ *
+ * Приоритеты (по возрастанию): + - ; * / // ; унарный минус ; ^ ; постфиксный !.
+ * Все бинарные операторы левоассоциативны (2^3^2 = (2^3)^2, как и раньше).
+ */
+public final class Parser {
+
+    private static final int NEGATE_PRECEDENCE = 3;
+    // Предел вложенности скобок, отрицаний и аргументов: глубже разбор переполнил бы стек потока
+    private static final int MAX_DEPTH = 1000;
+    // Только встроенные функции - для разбора без реестра модели
+    private static final FunctionRegistry BUILT_IN = new FunctionRegistry();
+
+    private final TokenBuffer tokens;
+    private final int maxTerms;
+    private final boolean keepLiterals;
+    private final FunctionRegistry functions;
+    private int index;
+    private int terms;
+    private int depth;
+
+    private Parser(TokenBuffer tokens, int maxTerms, boolean keepLiterals, FunctionRegistry functions) {
+        this.tokens = tokens;
+        this.maxTerms = maxTerms;
+        this.keepLiterals = keepLiterals;
+        this.functions = functions;
+    }
+
+    /**
+     * Разбирает токены в дерево выражения.
+     * @param maxTerms Максимальное количество слагаемых (чисел и переменных).
+     * @throws ParseException Синтаксическая ошибка с позицией во входной строке.
+     */
+    public static Node parse(TokenBuffer tokens, int maxTerms) {
+        return parse(tokens, maxTerms, false);
+    }
+
+    /**
+     * @param keepLiterals Сохранять исходную запись чисел в узлах (нужно точным режимам вычисления).
+     */
+    public static Node parse(TokenBuffer tokens, int maxTerms, boolean keepLiterals) {
+        return parse(tokens, maxTerms, keepLiterals, BUILT_IN);
+    }
+
+    /**
+     * @param functions Реестр, в котором ищутся функции. Вызовы функций-выражений
+     *                  заменяются их телом с подставленными аргументами.
+     */
+    public static Node parse(TokenBuffer tokens, int maxTerms, boolean keepLiterals, FunctionRegistry functions) {
+        Parser parser = new Parser(tokens, maxTerms, keepLiterals, functions);
+        Node root = parser.expression(0);
+        parser.expectEnd();
+        return root;
+    }
+
+    /**
+     * Разбирает определение функции вида f(x, y) = выражение.
+     * В теле допустимы только параметры и уже известные функции.
+     */
+    public static CalculatorFunction parseDefinition(TokenBuffer tokens, int maxTerms, FunctionRegistry functions) {
+        Parser parser = new Parser(tokens, maxTerms, true, functions);
+        String name = parser.expectIdentifier("Ожидается имя функции.");
+        parser.expect(Lexer.LEFT_PAREN, "Ожидается '(' после имени функции.");
+        List<String> parameters = new ArrayList<>();
+        if (parser.index < tokens.size() && tokens.kind(parser.index) == Lexer.RIGHT_PAREN) {
+            parser.index++;
+        } else {
+            while (true) {
+                int parameterIndex = parser.index;
+                String parameter = parser.expectIdentifier("Ожидается имя параметра.");
+                if (parameters.contains(parameter)) {
+                    throw new ParseException("Повторяющийся параметр: " + parameter, tokens.start(parameterIndex));
+                }
+                parameters.add(parameter);
+                if (parser.index < tokens.size() && tokens.kind(parser.index) == Lexer.COMMA) {
+                    parser.index++;
+                } else {
+                    parser.expect(Lexer.RIGHT_PAREN, "Ожидается ',' или ')'.");
+                    break;
+                }
+            }
+        }
+        parser.expect(Lexer.EQUALS, "Ожидается '=' после списка параметров.");
+        int bodyStart = parser.index;
+        Node body = parser.expression(0);
+        parser.expectEnd();
+        String unknown = freeVariable(body, parameters);
+        if (unknown != null) {
+            throw new ParseException("Неизвестная переменная в теле функции: " + unknown, tokens.start(bodyStart));
+        }
+        return CalculatorFunction.expression(name, parameters.toArray(new String[0]), body);
+    }
+
+    private void expectEnd() {
+        if (index < tokens.size()) {
+            switch (tokens.kind(index)) {
+                case Lexer.RIGHT_PAREN:
+                    throw new ParseException("Ошибка в расстановке скобок (нет открывающей).", tokens.start(index),
+                            ParseException.Kind.BRACKETS);
+                case Lexer.ERROR:
+                    throw error("Недопустимый символ '" + tokens.text(index) + "'.");
+                case Lexer.COMMA:
+                    throw error("Запятая допустима только между аргументами функции.");
+                case Lexer.EQUALS:
+                    throw error("Определение функции должно иметь вид f(x) = выражение.");
+                default:
+                    throw error("Ожидается оператор.");
+            }
+        }
+    }
+
+    /**
+     * Разбирает выражение, в котором связываются только операторы с приоритетом выше minPrecedence.
+     */
+    private Node expression(int minPrecedence) {
+        if (++depth > MAX_DEPTH) {
+            throw error("Слишком глубокая вложенность выражения (больше " + MAX_DEPTH + ").");
+        }
+        Node left = operand();
+        int postfix = 0; // Каждый "!" добавляет уровень дереву, как и скобки
+        while (index < tokens.size()) {
+            int kind = tokens.kind(index);
+            int precedence = precedenceOf(kind);
+            if (precedence <= minPrecedence) {
+                break;
+            }
+            if (kind == Lexer.BANG) {
+                postfix++;
+                if (++depth > MAX_DEPTH) {
+                    throw error("Слишком глубокая вложенность выражения (больше " + MAX_DEPTH + ").");
+                }
+                index++;
+                left = Node.unary(Program.FACT, left);
+            } else {
+                index++;
+                left = Node.binary(opcodeOf(kind), left, expression(precedence));
+            }
+        }
+        depth -= postfix + 1;
+        return left;
+    }
+
+    /**
+     * Разбирает операнд: число, переменную, вызов функции, скобки или отрицание.
+     */
+    private Node operand() {
+        if (index >= tokens.size()) {
+            throw error("Ожидается число, переменная или '('.");
+        }
+        int kind = tokens.kind(index);
+        int current = index++;
+        switch (kind) {
+            case Lexer.NUMBER:
+                countTerm(current);
+                if (keepLiterals) {
+                    return Node.constant(tokens.number(current), tokens.compactText(current));
+                }
+                return Node.constant(tokens.number(current));
+            case Lexer.IDENTIFIER:
+                if (index < tokens.size() && tokens.kind(index) == Lexer.LEFT_PAREN) {
+                    CalculatorFunction function = functionOf(current);
+                    index++;
+                    return call(function, arguments(current + 1), current);
+                }
+                countTerm(current);
+                return Node.variable(tokens.text(current));
+            case Lexer.NEGATE:
+                return Node.unary(Program.NEG, expression(NEGATE_PRECEDENCE));
+            case Lexer.LEFT_PAREN:
+                return closeParen(expression(0), current);
+            case Lexer.RIGHT_PAREN:
+                index = current;
+                throw error(current > 0 && tokens.kind(current - 1) == Lexer.LEFT_PAREN
+                        ? "Пустые скобки." : "Ожидается число, переменная или '('.");
+            case Lexer.ERROR:
+                index = current;
+                throw error("Недопустимый символ '" + tokens.text(current) + "'.");
+            case Lexer.COMMA:
+            case Lexer.EQUALS:
+                index = current;
+                throw error("Ожидается число, переменная или '('.");
+            default:
+                index = current;
+                throw error("Недостаточно операндов для оператора " + tokens.text(current));
+        }
+    }
+
+    private Node closeParen(Node inner, int openIndex) {
+        if (index >= tokens.size() || tokens.kind(index) != Lexer.RIGHT_PAREN) {
+            throw new ParseException("Ошибка в расстановке скобок (нет закрывающей).", tokens.start(openIndex),
+                    ParseException.Kind.BRACKETS);
+        }
+        index++;
+        return inner;
+    }
+
+    private void countTerm(int tokenIndex) {
+        // Проверка на количество слагаемых (требование 3)
+        if (++terms > maxTerms) {
+            throw new ParseException("Количество слагаемых не должно превышать " + maxTerms + ".", tokens.start(tokenIndex),
+                    ParseException.Kind.TOO_MANY_TERMS);
+        }
+    }
+
+    private CalculatorFunction functionOf(int tokenIndex) {
+        CalculatorFunction function = functions.find(tokens.text(tokenIndex));
+        if (function == null) {
+            throw new ParseException("Неизвестная функция: " + tokens.text(tokenIndex), tokens.start(tokenIndex));
+        }
+        return function;
+    }
+
+    /**
+     * Разбирает аргументы вызова после открывающей скобки с индексом openIndex.
+     */
+    private Node[] arguments(int openIndex) {
+        List<Node> arguments = new ArrayList<>();
+        if (index < tokens.size() && tokens.kind(index) == Lexer.RIGHT_PAREN) {
+            index++;
+            return new Node[0];
+        }
+        while (true) {
+            arguments.add(expression(0));
+            if (index < tokens.size() && tokens.kind(index) == Lexer.COMMA) {
+                index++;
+            } else {
+                closeParen(null, openIndex);
+                return arguments.toArray(new Node[0]);
+            }
+        }
+    }
+
+    /**
+     * Узел вызова: встроенные функции - опкодом, функции-выражения - подстановкой тела,
+     * внешние - узлом CALL с прямой ссылкой на функцию.
+     */
+    private Node call(CalculatorFunction function, Node[] arguments, int nameIndex) {
+        if (arguments.length != function.getArity()) {
+            throw new ParseException("Функция " + function.getName() + " ожидает аргументов: " + function.getArity()
+                    + ", передано: " + arguments.length + ".", tokens.start(nameIndex));
+        }
+        if (function.isIntrinsic()) {
+            return Node.unary(function.getOpcode(), arguments[0]);
+        }
+        if (function.isExpression()) {
+            return function.getBody().substitute(function.getParameters(), arguments);
+        }
+        return Node.call(function, arguments);
+    }
+
+    private String expectIdentifier(String message) {
+        if (index >= tokens.size() || tokens.kind(index) != Lexer.IDENTIFIER) {
+            throw error(message);
+        }
+        return tokens.text(index++);
+    }
+
+    private void expect(int kind, String message) {
+        if (index >= tokens.size() || tokens.kind(index) != kind) {
+            throw error(message);
+        }
+        index++;
+    }
+
+    /**
+     * Первая переменная дерева, не входящая в allowed, или null.
+     */
+    private static String freeVariable(Node node, List<String> allowed) {
+        if (node.getKind() == Node.Kind.VARIABLE) {
+            return allowed.contains(node.getName()) ? null : node.getName();
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            String found = freeVariable(node.getChild(i), allowed);
+            if (found != null) return found;
+        }
+        return null;
+    }
+
+    private static int precedenceOf(int kind) {
+        switch (kind) {
+            case Lexer.BANG:
+                return 5; // У факториала высший приоритет
+            case Lexer.CARET:
+                return 4;
+            case Lexer.STAR:
+            case Lexer.SLASH:
+            case Lexer.INT_DIVIDE:
+                return 2;
+            case Lexer.PLUS:
+            case Lexer.MINUS:
+                return 1;
+            default:
+                return 0; // Не оператор: разбор выражения на этом заканчивается
+        }
+    }
+
+    private static int opcodeOf(int kind) {
+        switch (kind) {
+            case Lexer.PLUS: return Program.ADD;
+            case Lexer.MINUS: return Program.SUB;
+            case Lexer.STAR: return Program.MUL;
+            case Lexer.SLASH: return Program.DIV;
+            case Lexer.CARET: return Program.POW;
+            default: return Program.IDIV;
+        }
+    }
+
+    /**
+     * Ошибка в позиции текущего токена (или в конце строки).
+     */
+    private ParseException error(String message) {
+        int position = index < tokens.size() ? tokens.start(index) : tokens.getSource().length();
+        return new ParseException(message, position);
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * Скомпилированное выражение: компактный байткод для стековой машины.
+ * Код - массив int (опкод, для PUSH за ним следует индекс константы,
+ * для LOAD - индекс переменной, для CALL - индекс функции), константы хранятся
+ * в отдельном пуле double, функции - массивом прямых ссылок.
+ * Повторяющиеся подвыражения вычисляются один раз: результат сохраняется (STORE)
+ * в ячейку за рабочей частью стека и затем загружается оттуда (FETCH).
+ * Программа неизменяема (кроме однократно создаваемого сгенерированного вычислителя)
+ * и может выполняться из нескольких потоков одновременно.
+ */
+public final class Program {
+
+    // Опкоды
+    static final int PUSH = 0;
+    static final int ADD = 1;
+    static final int SUB = 2;
+    static final int MUL = 3;
+    static final int DIV = 4;
+    static final int POW = 5;
+    static final int IDIV = 6;
+    static final int FACT = 7;
+    static final int LOG = 8;
+    static final int EXP = 9;
+    static final int LOAD = 10;
+    static final int NEG = 11;
+    static final int CALL = 12; // Вызов функции из реестра, за опкодом следует индекс функции
+    static final int STORE = 13; // Копирует вершину стека в ячейку общего подвыражения
+    static final int FETCH = 14; // Кладет на стек значение из ячейки общего подвыражения
+
+    private static final double[] NO_VARIABLES = new double[0];
+
+    private final int[] code;
+    private final double[] constants;
+    private final String[] variables;
+    private final CalculatorFunction[] functions;
+    private final int outputCount;
+    private final int operandDepth;
+    private final int slotCount;
+    private final int eliminatedNodes;
+    private final int sharedNodes;
+    private final PureCallMemo memo;
+    // Сгенерированный вычислитель (BytecodeGenerator): создается при первом запросе
+    private DoubleEvaluator generated;
+    private boolean generationAttempted;
+
+    Program(int[] code, double[] constants, String[] variables, CalculatorFunction[] functions,
+            int outputCount, int operandDepth, int slotCount, int eliminatedNodes, int sharedNodes, PureCallMemo memo) {
+        this.code = code;
+        this.constants = constants;
+        this.variables = variables;
+        this.functions = functions;
+        this.outputCount = outputCount;
+        this.operandDepth = operandDepth;
+        this.slotCount = slotCount;
+        this.eliminatedNodes = eliminatedNodes;
+        this.sharedNodes = sharedNodes;
+        this.memo = memo;
+    }
+
+    /**
+     * Выполняет программу без переменных, выделяя стек под одно вычисление.
+     */
+    public double evaluate() {
+        return evaluate(NO_VARIABLES, new double[getMaxStackDepth()]);
+    }
+
+    /**
+     * Выполняет программу на переданном стеке (длиной не меньше {@link #getMaxStackDepth()}).
+     * Повторное использование стека делает вычисление полностью безаллокационным.
+     * @param values Значения переменных в порядке {@link #getVariables()}.
+     */
+    public double evaluate(double[] values, double[] stack) {
+        final int[] code = this.code;
+        final double[] constants = this.constants;
+        final int slots = operandDepth;
+        int sp = 0;
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc++]) {
+                case PUSH:
+                    stack[sp++] = constants[code[pc++]];
+                    break;
+                case LOAD:
+                    stack[sp++] = values[code[pc++]];
+                    break;
+                case NEG:
+                    stack[sp - 1] = -stack[sp - 1];
+                    break;
+                case ADD:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] + stack[sp];
+                    break;
+                case SUB:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] - stack[sp];
+                    break;
+                case MUL:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] * stack[sp];
+                    break;
+                case DIV:
+                    sp--;
+                    stack[sp - 1] = Operations.divide(stack[sp - 1], stack[sp]);
+                    break;
+                case POW:
+                    sp--;
+                    stack[sp - 1] = Math.pow(stack[sp - 1], stack[sp]);
+                    break;
+                case IDIV:
+                    sp--;
+                    stack[sp - 1] = Operations.integerDivide(stack[sp - 1], stack[sp]);
+                    break;
+                case FACT:
+                    stack[sp - 1] = Operations.factorial(stack[sp - 1]);
+                    break;
+                case LOG:
+                    stack[sp - 1] = memo != null ? memo.log2(stack[sp - 1]) : Operations.log2(stack[sp - 1]);
+                    break;
+                case EXP:
+                    stack[sp - 1] = memo != null ? memo.exp(stack[sp - 1]) : Math.exp(stack[sp - 1]);
+                    break;
+                case STORE:
+                    stack[slots + code[pc++]] = stack[sp - 1];
+                    break;
+                case FETCH:
+                    stack[sp++] = stack[slots + code[pc++]];
+                    break;
+                case CALL: {
+                    // Аргументы лежат на вершине стека, результат занимает место первого из них
+                    CalculatorFunction function = functions[code[pc++]];
+                    sp -= function.getArity();
+                    stack[sp] = function.apply(stack, sp);
+                    sp++;
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Неизвестный опкод: " + code[pc - 1]);
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Выполняет программу с несколькими результатами (например, значение и градиент)
+     * за один проход: результаты остаются на дне стека и копируются в out.
+     * @param out Массив длиной не меньше {@link #getOutputCount()}.
+     * @return Первый результат.
+     */
+    public double evaluate(double[] values, double[] stack, double[] out) {
+        double first = evaluate(values, stack);
+        System.arraycopy(stack, 0, out, 0, outputCount);
+        return first;
+    }
+
+    /**
+     * Имена переменных в порядке первого появления в выражении.
+     */
+    public String[] getVariables() {
+        return variables.clone();
+    }
+
+    public int getVariableCount() {
+        return variables.length;
+    }
+
+    /**
+     * Количество результатов программы (1 для обычного выражения).
+     */
+    public int getOutputCount() {
+        return outputCount;
+    }
+
+    /**
+     * Необходимая длина массива стека: рабочая часть и ячейки общих подвыражений.
+     */
+    public int getMaxStackDepth() {
+        return operandDepth + slotCount;
+    }
+
+    /**
+     * Сколько узлов дерева выражения удалил оптимизатор при компиляции.
+     */
+    public int getEliminatedNodes() {
+        return eliminatedNodes;
+    }
+
+    /**
+     * Сколько узлов не вычисляется при каждом выполнении благодаря
+     * повторному использованию одинаковых подвыражений.
+     */
+    public int getSharedNodes() {
+        return sharedNodes;
+    }
+
+    /**
+     * Кэш результатов log и exp или null, если программа их не использует или кэш отключен.
+     */
+    public PureCallMemo getMemo() {
+        return memo;
+    }
+
+    /**
+     * Вычислитель программы в виде сгенерированного JVM-класса. Класс создается один раз
+     * при первом вызове, поэтому программа из кэша выражений не порождает новых классов.
+     * @return Вычислитель или null, если генерация недоступна (тогда используется интерпретатор).
+     */
+    public synchronized DoubleEvaluator getGenerated() {
+        if (!generationAttempted) {
+            generated = BytecodeGenerator.tryGenerate(this);
+            generationAttempted = true;
+        }
+        return generated;
+    }
+
+    int getOperandDepth() {
+        return operandDepth;
+    }
+
+    int getSlotCount() {
+        return slotCount;
+    }
+
+    int[] getCode() {
+        return code;
+    }
+
+    double[] getConstants() {
+        return constants;
+    }
+
+    CalculatorFunction[] getFunctions() {
+        return functions;
+    }
+}
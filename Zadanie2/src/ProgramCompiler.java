@@ -0,0 +1,283 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Собирает {@link Program} из последовательности инструкций стековой машины.
+ * Во время сборки отслеживается глубина стека, поэтому ошибки вида
+ * "не хватает операндов" обнаруживаются один раз при компиляции, а не при каждом вычислении.
+ * При компиляции дерева одинаковые чистые подвыражения вычисляются один раз:
+ * первое вхождение сохраняет результат в ячейку, остальные загружают его оттуда.
+ */
+public class ProgramCompiler {
+
+    private int[] code = new int[16];
+    private int codeLength;
+    private double[] constants = new double[8];
+    private int constantCount;
+    private final List<String> variables = new ArrayList<>();
+    private final List<CalculatorFunction> functions = new ArrayList<>();
+
+    private int eliminatedNodes;
+    private int outputCount = 1;
+    private int sharedNodes;
+    private int slotCount;
+    private boolean usesMemo;
+
+    // Повторяющиеся поддеревья и назначенные им ячейки
+    private Map<Node, Integer> repeated = new HashMap<>();
+    private final Map<Node, Integer> slots = new HashMap<>();
+
+    private int depth;
+    private int maxDepth;
+
+    /**
+     * Добавляет загрузку константы на стек. Одинаковые константы разделяют ячейку пула.
+     */
+    public ProgramCompiler pushConstant(double value) {
+        int index = indexOfConstant(value);
+        if (index < 0) {
+            if (constantCount == constants.length) {
+                constants = Arrays.copyOf(constants, constantCount * 2);
+            }
+            index = constantCount;
+            constants[constantCount++] = value;
+        }
+        append(Program.PUSH);
+        append(index);
+        grow(1);
+        return this;
+    }
+
+    /**
+     * Добавляет загрузку переменной на стек. Индекс переменной назначается при первом появлении.
+     */
+    public ProgramCompiler loadVariable(String name) {
+        int index = variables.indexOf(name);
+        if (index < 0) {
+            index = variables.size();
+            variables.add(name);
+        }
+        append(Program.LOAD);
+        append(index);
+        grow(1);
+        return this;
+    }
+
+    /**
+     * Добавляет операцию. Бинарные операции снимают два операнда, унарные - один.
+     * @param opcode Опкод из {@link Program}.
+     * @param name Имя оператора или функции для сообщения об ошибке.
+     */
+    public ProgramCompiler emit(int opcode, String name) {
+        if (Operations.isUnary(opcode)) {
+            if (depth < 1) throw new IllegalArgumentException("Недостаточно операндов для функции " + name);
+        } else {
+            if (depth < 2) throw new IllegalArgumentException("Недостаточно операндов для оператора " + name);
+            depth--;
+        }
+        if (opcode == Program.LOG || opcode == Program.EXP) {
+            usesMemo = true;
+        }
+        append(opcode);
+        return this;
+    }
+
+    /**
+     * Копирует вершину стека в ячейку для повторного использования; значение остается на стеке.
+     */
+    public ProgramCompiler store(int slot) {
+        if (depth < 1) throw new IllegalArgumentException("Нет значения для сохранения в ячейку " + slot);
+        append(Program.STORE);
+        append(slot);
+        slotCount = Math.max(slotCount, slot + 1);
+        return this;
+    }
+
+    /**
+     * Кладет на стек значение, ранее сохраненное в ячейку.
+     */
+    public ProgramCompiler fetch(int slot) {
+        if (slot < 0 || slot >= slotCount) throw new IllegalArgumentException("Ячейка " + slot + " еще не заполнена.");
+        append(Program.FETCH);
+        append(slot);
+        grow(1);
+        return this;
+    }
+
+    /**
+     * Добавляет вызов функции: снимает со стека ее аргументы и кладет результат.
+     * Программа хранит прямую ссылку на функцию, поэтому при вычислении она не ищется по имени.
+     */
+    public ProgramCompiler call(CalculatorFunction function) {
+        if (depth < function.getArity()) {
+            throw new IllegalArgumentException("Недостаточно аргументов для функции " + function.getName());
+        }
+        int index = functions.indexOf(function);
+        if (index < 0) {
+            index = functions.size();
+            functions.add(function);
+        }
+        append(Program.CALL);
+        append(index);
+        grow(1 - function.getArity());
+        return this;
+    }
+
+    /**
+     * Компилирует дерево выражения обходом в обратном порядке.
+     */
+    public static Program compile(Node root, int eliminatedNodes) {
+        return compile(new Node[]{root}, eliminatedNodes);
+    }
+
+    /**
+     * Компилирует несколько деревьев в одну программу с несколькими результатами
+     * (см. {@link Program#evaluate(double[], double[], double[])}).
+     * Общие подвыражения разделяются между всеми деревьями.
+     */
+    public static Program compile(Node[] roots, int eliminatedNodes) {
+        ProgramCompiler compiler = new ProgramCompiler();
+        compiler.eliminatedNodes = eliminatedNodes;
+        compiler.outputCount = roots.length;
+        compiler.repeated = findRepeated(roots);
+        for (Node root : roots) {
+            compiler.emitTree(root);
+        }
+        return compiler.build();
+    }
+
+    /**
+     * Собирает программу заново из готового кода (например, загруженного из {@link ProgramStore}).
+     * Код проходит те же проверки глубины стека и ячеек, что и при компиляции дерева.
+     * @throws IllegalArgumentException Код некорректен.
+     */
+    static Program rebuild(int[] code, double[] constants, String[] variables, CalculatorFunction[] functions,
+                           int outputCount, int eliminatedNodes, int sharedNodes) {
+        ProgramCompiler compiler = new ProgramCompiler();
+        compiler.eliminatedNodes = eliminatedNodes;
+        compiler.sharedNodes = sharedNodes;
+        compiler.outputCount = outputCount;
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = code[pc++];
+            if (opcode == Program.PUSH || opcode == Program.LOAD || opcode == Program.CALL
+                    || opcode == Program.STORE || opcode == Program.FETCH) {
+                if (pc >= code.length) throw new IllegalArgumentException("Нет операнда у опкода " + opcode);
+                int operand = code[pc++];
+                switch (opcode) {
+                    case Program.PUSH: compiler.pushConstant(constants[checkIndex(operand, constants.length)]); break;
+                    case Program.LOAD: compiler.loadVariable(variables[checkIndex(operand, variables.length)]); break;
+                    case Program.CALL: compiler.call(functions[checkIndex(operand, functions.length)]); break;
+                    case Program.STORE: compiler.store(checkIndex(operand, compiler.slotCount + 1)); break;
+                    default: compiler.fetch(checkIndex(operand, compiler.slotCount));
+                }
+            } else if (opcode >= Program.ADD && opcode <= Program.NEG && opcode != Program.LOAD) {
+                compiler.emit(opcode, Operations.symbolOf(opcode));
+            } else {
+                throw new IllegalArgumentException("Неизвестный опкод: " + opcode);
+            }
+        }
+        return compiler.build();
+    }
+
+    private static int checkIndex(int index, int length) {
+        if (index < 0 || index >= length) {
+            throw new IllegalArgumentException("Индекс " + index + " вне диапазона [0, " + length + ").");
+        }
+        return index;
+    }
+
+    /**
+     * Чистые поддеревья, которые встречаются в выражении больше одного раза.
+     * Внутрь повторного вхождения подсчет не спускается: оно целиком заменится
+     * загрузкой из ячейки, и его части отдельные ячейки не получают.
+     */
+    private static Map<Node, Integer> findRepeated(Node[] roots) {
+        Map<Node, Integer> counts = new HashMap<>();
+        for (Node root : roots) {
+            countOccurrences(root, counts);
+        }
+        counts.values().removeIf(count -> count < 2);
+        return counts;
+    }
+
+    private static void countOccurrences(Node node, Map<Node, Integer> counts) {
+        if (node.getChildCount() == 0) {
+            return; // Загрузка константы или переменной не дороже загрузки из ячейки
+        }
+        if (node.isPure() && counts.merge(node, 1, Integer::sum) > 1) {
+            return;
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            countOccurrences(node.getChild(i), counts);
+        }
+    }
+
+    private void emitTree(Node node) {
+        boolean shared = repeated.containsKey(node);
+        if (shared) {
+            Integer slot = slots.get(node);
+            if (slot != null) {
+                fetch(slot);
+                sharedNodes += node.size() - 1;
+                return;
+            }
+        }
+        switch (node.getKind()) {
+            case CONSTANT:
+                pushConstant(node.getValue());
+                break;
+            case VARIABLE:
+                loadVariable(node.getName());
+                break;
+            case CALL:
+                for (int i = 0; i < node.getChildCount(); i++) {
+                    emitTree(node.getChild(i));
+                }
+                call(node.getFunction());
+                break;
+            default:
+                for (int i = 0; i < node.getChildCount(); i++) {
+                    emitTree(node.getChild(i));
+                }
+                emit(node.getOpcode(), Operations.symbolOf(node.getOpcode()));
+        }
+        if (shared) {
+            int slot = slotCount;
+            store(slot);
+            slots.put(node, slot);
+        }
+    }
+
+    public Program build() {
+        if (depth != outputCount) {
+            throw new IllegalArgumentException("Выражение составлено некорректно.");
+        }
+        return new Program(Arrays.copyOf(code, codeLength), Arrays.copyOf(constants, constantCount),
+                variables.toArray(new String[0]), functions.toArray(new CalculatorFunction[0]),
+                outputCount, maxDepth, slotCount, eliminatedNodes, sharedNodes, usesMemo ? new PureCallMemo() : null);
+    }
+
+    private int indexOfConstant(double value) {
+        long bits = Double.doubleToLongBits(value);
+        for (int i = 0; i < constantCount; i++) {
+            if (Double.doubleToLongBits(constants[i]) == bits) return i;
+        }
+        return -1;
+    }
+
+    private void append(int value) {
+        if (codeLength == code.length) {
+            code = Arrays.copyOf(code, codeLength * 2);
+        }
+        code[codeLength++] = value;
+    }
+
+    private void grow(int delta) {
+        depth += delta;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+}
@@ -0,0 +1,226 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Двоичный файл скомпилированных программ для быстрого старта: при загрузке выражения
+ * не разбираются заново, программы восстанавливаются прямо из байткода.
+ *
+ * Формат (big-endian):
+ * <pre>
+ * int    MAGIC ("CALC")
+ * short  VERSION
+ * int    подпись реестра функций
+ * int    количество записей
+ * записи: строка-ключ, код, константы, переменные, функции (по имени и арности),
+ *         количество результатов, статистика оптимизатора
+ * int    CRC32 всего предшествующего содержимого
+ * </pre>
+ * Файл читается через отображение в память. Поврежденный файл или файл другой версии
+ * отклоняется целиком. Программы проверяются повторной сборкой через {@link ProgramCompiler},
+ * как только что скомпилированные. Подпись реестра защищает от устаревших тел
+ * подставленных функций-выражений: если набор функций изменился, файл не загружается.
+ */
+public final class ProgramStore {
+
+    private static final int MAGIC = 0x43414C43; // "CALC"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 2 + 4 + 4;
+    private static final int TRAILER_SIZE = 4;
+
+    private ProgramStore() {
+    }
+
+    /**
+     * Сохраняет программы в файл. Запись идет во временный файл, который затем
+     * переименовывается, поэтому читатель никогда не увидит недописанный файл.
+     * @param programs Программы по ключу (строке выражения).
+     */
+    public static void save(Path file, Map<String, Program> programs, FunctionRegistry functions) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(signatureOf(functions));
+        out.writeInt(programs.size());
+        for (Map.Entry<String, Program> entry : programs.entrySet()) {
+            writeString(out, entry.getKey());
+            writeProgram(out, entry.getValue());
+        }
+        out.flush();
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray(), 0, bytes.size());
+        out.writeInt((int) crc.getValue());
+        out.flush();
+
+        Path absolute = file.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, bytes.toByteArray());
+            try {
+                Files.move(temporary, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Загружает программы из файла.
+     * @return Программы по ключу в порядке записи в файле.
+     * @throws IOException Файл поврежден, другой версии или создан с другим набором функций.
+     */
+    public static Map<String, Program> load(Path file, FunctionRegistry functions) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Некорректный размер файла программ: " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return read(buffer, functions);
+        }
+    }
+
+    private static Map<String, Program> read(ByteBuffer buffer, FunctionRegistry functions) throws IOException {
+        int contentSize = buffer.limit() - TRAILER_SIZE;
+        CRC32 crc = new CRC32();
+        ByteBuffer content = buffer.duplicate();
+        content.limit(contentSize);
+        crc.update(content);
+        if ((int) crc.getValue() != buffer.getInt(contentSize)) {
+            throw new IOException("Файл программ поврежден: контрольная сумма не совпадает.");
+        }
+        buffer.limit(contentSize);
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Файл не является файлом скомпилированных программ.");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Неподдерживаемая версия файла программ: " + version + " (ожидается " + VERSION + ").");
+        }
+        if (buffer.getInt() != signatureOf(functions)) {
+            throw new IOException("Файл программ создан с другим набором функций.");
+        }
+        try {
+            int count = checkCount(buffer.getInt(), buffer);
+            Map<String, Program> programs = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String key = readString(buffer);
+                programs.put(key, readProgram(buffer, functions));
+            }
+            return programs;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Файл программ поврежден: " + e, e);
+        }
+    }
+
+    private static void writeProgram(DataOutputStream out, Program program) throws IOException {
+        int[] code = program.getCode();
+        out.writeInt(code.length);
+        for (int value : code) {
+            out.writeInt(value);
+        }
+        double[] constants = program.getConstants();
+        out.writeInt(constants.length);
+        for (double constant : constants) {
+            out.writeDouble(constant);
+        }
+        String[] variables = program.getVariables();
+        out.writeInt(variables.length);
+        for (String variable : variables) {
+            writeString(out, variable);
+        }
+        CalculatorFunction[] functions = program.getFunctions();
+        out.writeInt(functions.length);
+        for (CalculatorFunction function : functions) {
+            writeString(out, function.getName());
+            out.writeInt(function.getArity());
+        }
+        out.writeInt(program.getOutputCount());
+        out.writeInt(program.getEliminatedNodes());
+        out.writeInt(program.getSharedNodes());
+    }
+
+    private static Program readProgram(ByteBuffer buffer, FunctionRegistry registry) throws IOException {
+        int[] code = new int[checkCount(buffer.getInt(), buffer)];
+        for (int i = 0; i < code.length; i++) {
+            code[i] = buffer.getInt();
+        }
+        double[] constants = new double[checkCount(buffer.getInt(), buffer)];
+        for (int i = 0; i < constants.length; i++) {
+            constants[i] = buffer.getDouble();
+        }
+        String[] variables = new String[checkCount(buffer.getInt(), buffer)];
+        for (int i = 0; i < variables.length; i++) {
+            variables[i] = readString(buffer);
+        }
+        CalculatorFunction[] functions = new CalculatorFunction[checkCount(buffer.getInt(), buffer)];
+        for (int i = 0; i < functions.length; i++) {
+            String name = readString(buffer);
+            int arity = buffer.getInt();
+            CalculatorFunction function = registry.find(name);
+            if (function == null || function.getArity() != arity) {
+                throw new IOException("Функция " + name + "/" + arity + " из файла программ не зарегистрирована.");
+            }
+            functions[i] = function;
+        }
+        int outputCount = buffer.getInt();
+        int eliminatedNodes = buffer.getInt();
+        int sharedNodes = buffer.getInt();
+        return ProgramCompiler.rebuild(code, constants, variables, functions, outputCount, eliminatedNodes, sharedNodes);
+    }
+
+    /**
+     * Подпись набора функций: имена, арность, чистота и тела функций-выражений.
+     */
+    static int signatureOf(FunctionRegistry functions) {
+        List<String> descriptions = new ArrayList<>();
+        for (CalculatorFunction function : functions.getFunctions()) {
+            descriptions.add(function.getName().toLowerCase(Locale.ROOT) + ":" + function + ":" + function.isPure());
+        }
+        descriptions.sort(null);
+        CRC32 crc = new CRC32();
+        crc.update(String.join("\n", descriptions).getBytes(StandardCharsets.UTF_8));
+        return (int) crc.getValue();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[checkCount(buffer.getInt(), buffer)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Длина массива из файла не может быть отрицательной или больше оставшихся байтов.
+     */
+    private static int checkCount(int count, ByteBuffer buffer) throws IOException {
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IOException("Файл программ поврежден: некорректная длина " + count + ".");
+        }
+        return count;
+    }
+}
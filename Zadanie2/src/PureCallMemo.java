@@ -0,0 +1,105 @@
+/**
+ * Небольшой кэш результатов чистых функций log и exp для недавно встречавшихся аргументов.
+ * Кэш с прямым отображением: аргумент по хешу попадает в одну ячейку, новый аргумент вытесняет старый.
+ * Записи неизменяемы, поэтому кэш работает из нескольких потоков без блокировок.
+ * Если попаданий почти нет (например, все аргументы различны), кэш отключается:
+ * дальше функции вычисляются напрямую, без поиска в кэше и без подсчета.
+ */
+public final class PureCallMemo {
+
+    private static final int INDEX_BITS = 6;
+    private static final int SIZE = 1 << INDEX_BITS;
+    private static final int LOG = 0;
+    private static final int EXP = 1;
+    // Раз в столько промахов проверяется, приносит ли кэш пользу
+    private static final int CHECK_INTERVAL = 4096;
+
+    private final Entry[] entries = new Entry[SIZE * 2];
+    // Счетчики без синхронизации: при вычислении из нескольких потоков они приблизительны,
+    // но для оценки пользы кэша этого достаточно, а атомарное обновление дороже самого поиска
+    private long hits;
+    private long misses;
+    private int missesSinceCheck;
+    private volatile boolean storing = true;
+
+    public double log2(double x) {
+        return lookup(LOG, x);
+    }
+
+    public double exp(double x) {
+        return lookup(EXP, x);
+    }
+
+    private double lookup(int function, double x) {
+        if (!storing) {
+            return compute(function, x);
+        }
+        long bits = Double.doubleToRawLongBits(x);
+        int index = function * SIZE + slot(bits);
+        Entry entry = entries[index];
+        if (entry != null && entry.bits == bits) {
+            hits++;
+            return entry.result;
+        }
+        misses++;
+        double result = compute(function, x);
+        entries[index] = new Entry(bits, result);
+        if (++missesSinceCheck >= CHECK_INTERVAL) {
+            missesSinceCheck = 0;
+            // Меньше одного попадания на восемь промахов - кэш не окупается
+            if (hits * 8 < misses) {
+                storing = false;
+            }
+        }
+        return result;
+    }
+
+    private static double compute(int function, double x) {
+        return function == LOG ? Operations.log2(x) : Math.exp(x);
+    }
+
+    /**
+     * Ячейка по старшим битам произведения (фибоначчиево хеширование): они зависят от всех битов
+     * аргумента. Младшие биты у целых и коротких дробных чисел нулевые и ячейку не различают.
+     */
+    private static int slot(long bits) {
+        return (int) ((bits * 0x9E3779B97F4A7C15L) >>> (64 - INDEX_BITS));
+    }
+
+    /**
+     * Число попаданий, пока кэш был включен (приблизительное при вычислении из нескольких потоков).
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Число промахов, пока кэш был включен (приблизительное при вычислении из нескольких потоков).
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * false, если кэш отключился из-за низкой доли попаданий.
+     */
+    public boolean isStoring() {
+        return storing;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Кэш log/exp: попаданий %d, промахов %d%s",
+                getHits(), getMisses(), storing ? "" : " (кэш отключен)");
+    }
+
+    private static final class Entry {
+        final long bits;
+        final double result;
+
+        Entry(long bits, double result) {
+            this.bits = bits;
+            this.result = result;
+        }
+    }
+}
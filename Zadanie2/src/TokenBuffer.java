@@ -0,0 +1,160 @@
+import java.util.Arrays;
+
+/**
+ * Результат лексического анализа: параллельные массивы видов токенов,
+ * их границ во входной строке и значений чисел.
+ * Буфер переиспользуется между разборами, поэтому токены не создают объектов.
+ */
+public final class TokenBuffer {
+
+    private CharSequence source = "";
+    private int[] kinds = new int[32];
+    private int[] starts = new int[32];
+    private int[] ends = new int[32];
+    private double[] numbers = new double[32];
+    private int size;
+
+    // Копия токенов после места правки для Lexer.retokenize
+    private int[] tailKinds = new int[0];
+    private int[] tailStarts = new int[0];
+    private int[] tailEnds = new int[0];
+    private double[] tailNumbers = new double[0];
+    private int tailSize;
+
+    void reset(CharSequence source) {
+        this.source = source;
+        this.size = 0;
+    }
+
+    void setSource(CharSequence source) {
+        this.source = source;
+    }
+
+    void truncate(int newSize) {
+        size = newSize;
+    }
+
+    /**
+     * Запоминает токены начиная с from, чтобы после повторного разбора части строки
+     * присоединить совпавший остаток без разбора.
+     */
+    void saveTail(int from) {
+        tailSize = size - from;
+        if (tailKinds.length < tailSize) {
+            tailKinds = new int[kinds.length];
+            tailStarts = new int[kinds.length];
+            tailEnds = new int[kinds.length];
+            tailNumbers = new double[kinds.length];
+        }
+        System.arraycopy(kinds, from, tailKinds, 0, tailSize);
+        System.arraycopy(starts, from, tailStarts, 0, tailSize);
+        System.arraycopy(ends, from, tailEnds, 0, tailSize);
+        System.arraycopy(numbers, from, tailNumbers, 0, tailSize);
+    }
+
+    int tailSize() {
+        return tailSize;
+    }
+
+    int tailStart(int tailIndex) {
+        return tailStarts[tailIndex];
+    }
+
+    /**
+     * Совпадает ли сохраненный токен, сдвинутый на delta, с токеном index.
+     */
+    boolean tailMatches(int tailIndex, int index, int delta) {
+        return tailKinds[tailIndex] == kinds[index]
+                && tailStarts[tailIndex] + delta == starts[index]
+                && tailEnds[tailIndex] + delta == ends[index];
+    }
+
+    /**
+     * Дописывает сохраненные токены начиная с tailIndex, сдвигая их на delta.
+     */
+    void appendTail(int tailIndex, int delta) {
+        for (int i = tailIndex; i < tailSize; i++) {
+            add(tailKinds[i], tailStarts[i] + delta, tailEnds[i] + delta, tailNumbers[i]);
+        }
+    }
+
+    void add(int kind, int start, int end, double number) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+        }
+        kinds[size] = kind;
+        starts[size] = start;
+        ends[size] = end;
+        numbers[size] = number;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public CharSequence getSource() {
+        return source;
+    }
+
+    /**
+     * Вид токена - одна из констант {@link Lexer}.
+     */
+    public int kind(int index) {
+        return kinds[index];
+    }
+
+    /**
+     * Смещение начала токена во входной строке.
+     */
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int end(int index) {
+        return ends[index];
+    }
+
+    /**
+     * Значение числового токена.
+     */
+    public double number(int index) {
+        return numbers[index];
+    }
+
+    /**
+     * Текст токена. Создает строку, поэтому нужен только при компиляции (имена переменных, сообщения).
+     */
+    public String text(int index) {
+        return source.subSequence(starts[index], ends[index]).toString();
+    }
+
+    /**
+     * Текст токена без пробелов (между унарным минусом и числом они допустимы).
+     */
+    public String compactText(int index) {
+        StringBuilder text = new StringBuilder(ends[index] - starts[index]);
+        for (int i = starts[index]; i < ends[index]; i++) {
+            char c = source.charAt(i);
+            if (!Character.isWhitespace(c)) text.append(c);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Сравнивает текст токена со строкой без учета регистра, не создавая объектов.
+     */
+    public boolean textEqualsIgnoreCase(int index, String expected) {
+        int length = ends[index] - starts[index];
+        if (length != expected.length()) return false;
+        for (int i = 0; i < length; i++) {
+            char c = source.charAt(starts[index] + i);
+            if (Character.toLowerCase(c) != Character.toLowerCase(expected.charAt(i))) return false;
+        }
+        return true;
+    }
+}
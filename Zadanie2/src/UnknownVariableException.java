@@ -0,0 +1,18 @@
+/**
+ * Выражение ссылается на переменную, значение которой не задано.
+ */
+public class UnknownVariableException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String variable;
+
+    public UnknownVariableException(String variable) {
+        super("Неизвестная переменная: " + variable);
+        this.variable = variable;
+    }
+
+    public String getVariable() {
+        return variable;
+    }
+}
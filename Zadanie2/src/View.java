@@ -1,43 +1,71 @@
-import javax.swing.*;
-import java.awt.*;
-import java.awt.event.ActionListener;
-
-public class View extends JFrame {
-    private JTextField expressionField;
-    private JButton calculateButton;
-    private JLabel resultLabel;
-
-    public View() {
-        setTitle("MVC Advanced Calculator");
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setSize(500, 200);
-        setLocationRelativeTo(null);
-
-        expressionField = new JTextField(30);
-        calculateButton = new JButton("Рассчитать");
-        JLabel inputLabel = new JLabel("Введите уравнение:");
-        resultLabel = new JLabel("Результат: ");
-
-        JPanel panel = new JPanel();
-        panel.setLayout(new FlowLayout(FlowLayout.CENTER, 10, 10));
-
-        panel.add(inputLabel);
-        panel.add(expressionField);
-        panel.add(calculateButton);
-        panel.add(resultLabel);
-
-        this.add(panel);
-    }
-
-    public String getExpression() {
-        return expressionField.getText();
-    }
-
-    public void setResult(String result) {
-        resultLabel.setText("Результат: " + result);
-    }
-
-    public void addCalculateListener(ActionListener listener) {
-        calculateButton.addActionListener(listener);
-    }
+import javax.swing.*;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.ActionListener;
+
+public class View extends JFrame {
+    private JTextField expressionField;
+    private JButton calculateButton;
+    private JLabel resultLabel;
+    private JLabel previewLabel;
+    private JComboBox<Model.NumericMode> modeBox;
+
+    public View() {
+        setTitle("MVC Advanced Calculator");
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setSize(500, 200);
+        setLocationRelativeTo(null);
+
+        expressionField = new JTextField(30);
+        calculateButton = new JButton("Рассчитать");
+        JLabel inputLabel = new JLabel("Введите уравнение:");
+        resultLabel = new JLabel("Результат: ");
+        // Предварительный результат, обновляется во время ввода
+        previewLabel = new JLabel(" ");
+        // Режим вычисления: double, точный десятичный или целочисленный
+        modeBox = new JComboBox<>(Model.NumericMode.values());
+
+        JPanel panel = new JPanel();
+        panel.setLayout(new FlowLayout(FlowLayout.CENTER, 10, 10));
+
+        panel.add(inputLabel);
+        panel.add(expressionField);
+        panel.add(modeBox);
+        panel.add(calculateButton);
+        panel.add(resultLabel);
+        panel.add(previewLabel);
+
+        this.add(panel);
+    }
+
+    public String getExpression() {
+        return expressionField.getText();
+    }
+
+    public Model.NumericMode getNumericMode() {
+        return (Model.NumericMode) modeBox.getSelectedItem();
+    }
+
+    public void setResult(String result) {
+        resultLabel.setText("Результат: " + result);
+    }
+
+    public void setPreview(String preview) {
+        previewLabel.setText(preview.isEmpty() ? " " : preview);
+    }
+
+    public void addCalculateListener(ActionListener listener) {
+        calculateButton.addActionListener(listener);
+    }
+
+    /**
+     * Слушатель правок поля ввода (вызывается после каждой вставки и удаления).
+     */
+    public void addExpressionListener(DocumentListener listener) {
+        expressionField.getDocument().addDocumentListener(listener);
+    }
+
+    public void addModeListener(ActionListener listener) {
+        modeBox.addActionListener(listener);
+    }
 }
\ No newline at end of file
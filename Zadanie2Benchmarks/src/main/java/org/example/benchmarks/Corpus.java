@@ -0,0 +1,57 @@
+package org.example.benchmarks;
+
+/**
+ * Наборы выражений для бенчмарков. Каждое выражение укладывается в
+ * ограничение калькулятора в 15 слагаемых.
+ */
+public enum Corpus {
+
+    /** Короткие выражения из одного-двух операторов. */
+    SHORT(
+            "2+3",
+            "7*8",
+            "2**10",
+            "9//2",
+            "5!"),
+
+    /** Длинные строки на пределе слагаемых, с дробными числами и пробелами. */
+    LONG(
+            "1.5+2.25*3.125-4.0625/5.5+6.75*7.875-8.5+9.25*10.125-11.0625/12.5+13.75*14.875-15.5",
+            "123456.789*2-98765.4321/3+111111.111*4-222222.222/5+333333.333*6-444444.444/7+555555.555*8-1",
+            "1 + 2 - 3 * 4 / 5 + 6 ** 2 - 7 // 2 + 8 - 9 * 10 + 11 - 12 / 13"),
+
+    /** Глубоко вложенные скобки и отрицания. */
+    NESTED(
+            "(".repeat(32) + "1+2" + ")".repeat(32),
+            chain(14),
+            "-(".repeat(16) + "2" + ")".repeat(16)),
+
+    /** Вложенные вызовы log и exp. */
+    FUNCTIONS(
+            "log(exp(log(8)))",
+            "exp(log(16))*log(exp(2))",
+            "log(2**10)+exp(1)**2-log(64)//2",
+            "log(log(log(65536)))+exp(exp(0))");
+
+    private final String[] expressions;
+
+    Corpus(String... expressions) {
+        this.expressions = expressions;
+    }
+
+    public String[] expressions() {
+        return expressions.clone();
+    }
+
+    /**
+     * "1+(2*(3+(4*(...))))" из depth + 1 чисел.
+     */
+    private static String chain(int depth) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 1; i <= depth; i++) {
+            result.append(i).append(i % 2 == 1 ? '+' : '*').append('(');
+        }
+        result.append(depth + 1);
+        return result.append(")".repeat(depth)).toString();
+    }
+}
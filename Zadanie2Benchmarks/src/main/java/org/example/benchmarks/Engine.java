@@ -0,0 +1,66 @@
+package org.example.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Доступ к классам калькулятора из Zadanie2.
+ * Калькулятор лежит в пакете по умолчанию, который нельзя импортировать из
+ * именованного пакета (а JMH требует, чтобы бенчмарки были в пакете), поэтому
+ * методы берутся через MethodHandle. Дескрипторы хранятся в static final полях,
+ * и JIT встраивает вызовы через invokeExact так же, как прямые.
+ *
+ * Все ссылочные типы в сигнатурах приведены к Object.
+ */
+final class Engine {
+
+    /** Ограничение на количество слагаемых, как в Model. */
+    static final int MAX_TERMS = 15;
+
+    static final MethodHandle NEW_MODEL;        // (int cacheCapacity) -> Model
+    static final MethodHandle CALCULATE;        // (Model, String) -> double
+    static final MethodHandle NEW_TOKEN_BUFFER; // () -> TokenBuffer
+    static final MethodHandle TOKENIZE;         // (CharSequence, TokenBuffer) -> void
+    static final MethodHandle PARSE;            // (TokenBuffer, int maxTerms) -> Node
+    static final MethodHandle NEW_OPTIMIZER;    // () -> Optimizer
+    static final MethodHandle OPTIMIZE;         // (Optimizer, Node) -> Node
+    static final MethodHandle COMPILE;          // (Node, int eliminatedNodes) -> Program
+    static final MethodHandle MAX_STACK_DEPTH;  // (Program) -> int
+    static final MethodHandle EVALUATE;         // (Program, double[] values, double[] stack) -> double
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> model = Class.forName("Model");
+            Class<?> tokenBuffer = Class.forName("TokenBuffer");
+            Class<?> node = Class.forName("Node");
+            Class<?> optimizer = Class.forName("Optimizer");
+            Class<?> program = Class.forName("Program");
+
+            NEW_MODEL = erase(lookup.findConstructor(model, MethodType.methodType(void.class, int.class)));
+            CALCULATE = erase(lookup.findVirtual(model, "calculate", MethodType.methodType(double.class, String.class)));
+            NEW_TOKEN_BUFFER = erase(lookup.findConstructor(tokenBuffer, MethodType.methodType(void.class)));
+            TOKENIZE = erase(lookup.findStatic(Class.forName("Lexer"), "tokenize",
+                    MethodType.methodType(void.class, CharSequence.class, tokenBuffer)));
+            PARSE = erase(lookup.findStatic(Class.forName("Parser"), "parse",
+                    MethodType.methodType(node, tokenBuffer, int.class)));
+            NEW_OPTIMIZER = erase(lookup.findConstructor(optimizer, MethodType.methodType(void.class)));
+            OPTIMIZE = erase(lookup.findVirtual(optimizer, "optimize", MethodType.methodType(node, node)));
+            COMPILE = erase(lookup.findStatic(Class.forName("ProgramCompiler"), "compile",
+                    MethodType.methodType(program, node, int.class)));
+            MAX_STACK_DEPTH = erase(lookup.findVirtual(program, "getMaxStackDepth", MethodType.methodType(int.class)));
+            EVALUATE = erase(lookup.findVirtual(program, "evaluate",
+                    MethodType.methodType(double.class, double[].class, double[].class)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Engine() {
+    }
+
+    private static MethodHandle erase(MethodHandle handle) {
+        return handle.asType(handle.type().erase());
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный путь Model.calculate: кэш, разбор и вычисление.
+ * Одна операция - проход по всем выражениям набора.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ModelBenchmark {
+
+    @Param({"SHORT", "LONG", "NESTED", "FUNCTIONS"})
+    public Corpus corpus;
+
+    private String[] expressions;
+    // Кэш на 256 выражений: после первого прохода все разборы берутся из кэша
+    private Object cachedModel;
+    // Кэш на одно выражение: при обходе набора каждое выражение разбирается заново
+    private Object uncachedModel;
+
+    @Setup
+    public void setUp() throws Throwable {
+        expressions = corpus.expressions();
+        cachedModel = (Object) Engine.NEW_MODEL.invokeExact(256);
+        uncachedModel = (Object) Engine.NEW_MODEL.invokeExact(1);
+    }
+
+    @Benchmark
+    public void calculateCached(Blackhole blackhole) throws Throwable {
+        for (String expression : expressions) {
+            blackhole.consume((double) Engine.CALCULATE.invokeExact(cachedModel, (Object) expression));
+        }
+    }
+
+    @Benchmark
+    public void calculateUncached(Blackhole blackhole) throws Throwable {
+        for (String expression : expressions) {
+            blackhole.consume((double) Engine.CALCULATE.invokeExact(uncachedModel, (Object) expression));
+        }
+    }
+}
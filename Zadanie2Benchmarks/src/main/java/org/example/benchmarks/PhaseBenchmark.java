@@ -0,0 +1,95 @@
+package org.example.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отдельные фазы вычисления. Прежние tokenize, convertToRPN и evaluateRPN
+ * соответствуют здесь фазам tokenize (Lexer), parse + compile (Parser, Optimizer,
+ * ProgramCompiler - построение постфиксной программы) и evaluate (Program).
+ * Одна операция - проход по всем выражениям набора.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PhaseBenchmark {
+
+    @Param({"SHORT", "LONG", "NESTED", "FUNCTIONS"})
+    public Corpus corpus;
+
+    private String[] expressions;
+    private Object tokenBuffer;
+    // Входные данные каждой фазы готовятся заранее, чтобы замерялась только она
+    private Object[] tokens;
+    private Object[] trees;
+    private Object[] programs;
+    private Object optimizer;
+    private double[] stack;
+    private final double[] noValues = new double[0];
+
+    @Setup
+    public void setUp() throws Throwable {
+        expressions = corpus.expressions();
+        tokenBuffer = (Object) Engine.NEW_TOKEN_BUFFER.invokeExact();
+        optimizer = (Object) Engine.NEW_OPTIMIZER.invokeExact();
+        tokens = new Object[expressions.length];
+        trees = new Object[expressions.length];
+        programs = new Object[expressions.length];
+        int maxDepth = 1;
+        for (int i = 0; i < expressions.length; i++) {
+            tokens[i] = (Object) Engine.NEW_TOKEN_BUFFER.invokeExact();
+            Engine.TOKENIZE.invokeExact((Object) expressions[i], tokens[i]);
+            trees[i] = (Object) Engine.PARSE.invokeExact(tokens[i], Engine.MAX_TERMS);
+            // Без оптимизатора: иначе выражения из констант сворачиваются в одно число
+            // и вычисление не выполняло бы ни одной операции
+            programs[i] = (Object) Engine.COMPILE.invokeExact(trees[i], 0);
+            maxDepth = Math.max(maxDepth, (int) Engine.MAX_STACK_DEPTH.invokeExact(programs[i]));
+        }
+        stack = new double[maxDepth];
+    }
+
+    @Benchmark
+    public void tokenize(Blackhole blackhole) throws Throwable {
+        for (String expression : expressions) {
+            Engine.TOKENIZE.invokeExact((Object) expression, tokenBuffer);
+            blackhole.consume(tokenBuffer);
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws Throwable {
+        for (Object buffer : tokens) {
+            blackhole.consume((Object) Engine.PARSE.invokeExact(buffer, Engine.MAX_TERMS));
+        }
+    }
+
+    @Benchmark
+    public void compile(Blackhole blackhole) throws Throwable {
+        for (Object tree : trees) {
+            Object optimized = (Object) Engine.OPTIMIZE.invokeExact(optimizer, tree);
+            blackhole.consume((Object) Engine.COMPILE.invokeExact(optimized, 0));
+        }
+    }
+
+    @Benchmark
+    public void evaluate(Blackhole blackhole) throws Throwable {
+        for (Object program : programs) {
+            blackhole.consume((double) Engine.EVALUATE.invokeExact(program, (Object) noValues, (Object) stack));
+        }
+    }
+}
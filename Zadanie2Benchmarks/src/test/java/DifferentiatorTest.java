@@ -0,0 +1,26 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Производная степени: логарифм основания нужен, только если показатель зависит от переменной.
+ */
+class DifferentiatorTest {
+
+    @Test
+    void powerRule() {
+        Model model = new Model();
+        double[] gradient = new double[2];
+        model.gradient("x^3").evaluate(new double[] {-2}, gradient);
+        assertEquals(12.0, gradient[0]);
+        model.gradient("x^3").evaluate(new double[] {0}, gradient);
+        assertEquals(0.0, gradient[0]);
+        // По x показатель y - константа, логарифм отрицательного основания не нужен
+        model.gradient("x^y", "x").evaluate(new double[] {-2, 3}, gradient);
+        assertEquals(12.0, gradient[0]);
+        model.gradient("2^x").evaluate(new double[] {1}, gradient);
+        assertEquals(2 * Math.log(2), gradient[0], 1e-12);
+        model.gradient("x^x").evaluate(new double[] {1}, gradient);
+        assertEquals(1.0, gradient[0], 1e-12);
+    }
+}
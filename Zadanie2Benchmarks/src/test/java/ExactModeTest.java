@@ -0,0 +1,33 @@
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Точные режимы: одинаковые подвыражения переиспользуются только при совпадении исходной записи чисел.
+ */
+class ExactModeTest {
+
+    @Test
+    void integerModeDistinguishesLiteralsWithEqualDoubles() throws Exception {
+        Model model = new Model();
+        Number result = model.calculateNumber("(12345678901234567890*1)-(12345678901234567891*1)", Model.NumericMode.INTEGER);
+        assertEquals(BigInteger.valueOf(-1), result);
+    }
+
+    @Test
+    void decimalModeDistinguishesLiteralsWithEqualDoubles() throws Exception {
+        Model model = new Model();
+        Number result = model.calculateNumber("(0.1+1)-(0.10000000000000000001+1)", Model.NumericMode.DECIMAL);
+        assertEquals(0, new BigDecimal("-1E-20").compareTo((BigDecimal) result));
+    }
+
+    @Test
+    void repeatedSubexpressionsAreStillShared() throws Exception {
+        Model model = new Model();
+        Number result = model.calculateNumber("(2^100+1)*(2^100+1)", Model.NumericMode.INTEGER);
+        assertEquals(BigInteger.TWO.pow(100).add(BigInteger.ONE).pow(2), result);
+    }
+}
@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Интервальная оценка должна содержать все значения функции на интервалах аргументов.
+ */
+class IntervalTest {
+
+    private static final int STEPS = 200;
+
+    @Test
+    void powWithNegativeBaseContainsIntegerExponents() {
+        assertPowContainsSamples(Interval.of(-2, 1), Interval.of(3, 3.5));
+    }
+
+    @Test
+    void powContainsSamplesOnMixedRanges() {
+        double[][] bases = {{-2, 1}, {-3, -0.5}, {0, 2}, {0.5, 4}, {-1, 0}};
+        double[][] exponents = {{3, 3.5}, {-2, 2}, {0.5, 1.5}, {2, 2}, {-3, -1}, {1.2, 1.8}};
+        for (double[] base : bases) {
+            for (double[] exponent : exponents) {
+                assertPowContainsSamples(Interval.of(base[0], base[1]), Interval.of(exponent[0], exponent[1]));
+            }
+        }
+    }
+
+    private static void assertPowContainsSamples(Interval base, Interval exponent) {
+        Interval range = base.pow(exponent);
+        for (int i = 0; i <= STEPS; i++) {
+            double x = sample(base, i);
+            for (int j = 0; j <= STEPS; j++) {
+                double y = sample(exponent, j);
+                double value = Math.pow(x, y);
+                if (Double.isNaN(value) || Double.isInfinite(value)) continue;
+                assertTrue(range.contains(value),
+                        () -> x + "^" + y + " = " + value + " вне " + range + " для " + base + "^" + exponent);
+            }
+        }
+        // Целые точки показателя проверяются отдельно: на сетке их может не оказаться
+        for (double y = Math.ceil(exponent.getLow()); y <= exponent.getHigh(); y++) {
+            for (int i = 0; i <= STEPS; i++) {
+                double value = Math.pow(sample(base, i), y);
+                if (Double.isNaN(value) || Double.isInfinite(value)) continue;
+                assertTrue(range.contains(value), value + " вне " + range);
+            }
+        }
+    }
+
+    private static double sample(Interval interval, int step) {
+        return interval.getLow() + (interval.getHigh() - interval.getLow()) * step / STEPS;
+    }
+}
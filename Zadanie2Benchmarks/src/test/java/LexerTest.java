@@ -0,0 +1,44 @@
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Запись чисел и унарный минус.
+ */
+class LexerTest {
+
+    @Test
+    void exponentNotation() throws Exception {
+        Model model = new Model();
+        assertEquals(1000.0, model.calculate("1e3"));
+        assertEquals(100.0, model.calculate("1E+2"));
+        assertEquals(0.001, model.calculate("2.5e-4*4"));
+        assertEquals(Double.parseDouble("12345678901234567890e-5"), model.calculate("12345678901234567890e-5"));
+        assertEquals(0, new BigDecimal("1.5E-30").compareTo((BigDecimal) model.calculateNumber("1.5e-30", Model.NumericMode.DECIMAL)));
+    }
+
+    @Test
+    void minusBeforeNumberIsPartOfLiteral() throws Exception {
+        Model model = new Model();
+        assertEquals(4.0, model.calculate("-2^2"));
+        assertEquals(-4.0, model.calculate("-(2)^2"));
+        assertEquals(0.25, model.calculate("2^-2"));
+        assertEquals(5.0, model.calculate("3 - -2"));
+        assertEquals(-1500.0, model.calculate("- 1.5e3"));
+        assertEquals(4.0, model.calculateNumber("-2^2", Model.NumericMode.INTEGER).doubleValue());
+        assertThrows(ArithmeticException.class, () -> model.calculate("-3!"));
+    }
+
+    @Test
+    void retokenizeCompletesExponent() {
+        TokenBuffer tokens = new TokenBuffer();
+        Lexer.tokenize("1e", tokens);
+        Lexer.retokenize("1e3", tokens, 2, 0, 1);
+        assertEquals(1, tokens.size());
+        assertEquals(Lexer.NUMBER, tokens.kind(0));
+        assertEquals(1000.0, tokens.number(0));
+    }
+}
@@ -0,0 +1,22 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Оптимизатор не меняет результат вычисления, в том числе знак нуля.
+ */
+class OptimizerTest {
+
+    @Test
+    void zeroIdentitiesKeepSignOfZero() {
+        for (Model.Backend backend : Model.Backend.values()) {
+            Model model = new Model();
+            model.setBackend(backend);
+            // Знак нуля виден по знаку бесконечности при возведении в степень -1
+            assertEquals(Double.POSITIVE_INFINITY, model.compile("(0-x)^-1").evaluate(0), backend + ": 0-x");
+            assertEquals(Double.POSITIVE_INFINITY, model.compile("(x+0)^-1").evaluate(-0.0), backend + ": x+0");
+            assertEquals(Double.POSITIVE_INFINITY, model.compile("(0+x)^-1").evaluate(-0.0), backend + ": 0+x");
+            assertEquals(Double.NEGATIVE_INFINITY, model.compile("(x-0)^-1").evaluate(-0.0), backend + ": x-0");
+        }
+    }
+}
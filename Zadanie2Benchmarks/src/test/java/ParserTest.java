@@ -0,0 +1,18 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Ограничение глубины дерева разбора.
+ */
+class ParserTest {
+
+    @Test
+    void factorialChainCountsTowardDepthLimit() throws Exception {
+        Model model = new Model();
+        assertEquals(720.0, model.calculate("3!!"));
+        ParseException error = assertThrows(ParseException.class, () -> model.calculate("1" + "!".repeat(10_000)));
+        assertEquals(1000, error.getPosition());
+    }
+}
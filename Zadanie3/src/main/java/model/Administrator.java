@@ -1,7 +1,7 @@
-package com.evoting.model;
-
-public class Administrator extends User {
-    public Administrator(String login, String password) {
-        super(login, password, "Администратор", Role.ADMINISTRATOR);
-    }
+package com.evoting.model;
+
+public class Administrator extends User {
+    public Administrator(String login, String password) {
+        super(login, password, "Администратор", Role.ADMINISTRATOR);
+    }
 }
\ No newline at end of file
@@ -1,8 +1,8 @@
-package com.evoting.model;
-
-public enum Role {
-    ADMINISTRATOR,
-    CEC, // Центральная избирательная комиссия
-    CANDIDATE,
-    VOTER; // Пользователь-избиратель
+package com.evoting.model;
+
+public enum Role {
+    ADMINISTRATOR,
+    CEC, // Центральная избирательная комиссия
+    CANDIDATE,
+    VOTER; // Пользователь-избиратель
 }
\ No newline at end of file
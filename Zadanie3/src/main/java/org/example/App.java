@@ -2,13 +2,20 @@ package com.evoting;
 
 import com.evoting.service.VotingService;
 import com.evoting.storage.DataStorage;
+import com.evoting.storage.Snapshotter;
 import com.evoting.ui.ConsoleUI;
 
+import java.util.concurrent.TimeUnit;
+
 public class App {
+    // Период фонового сохранения данных, с (свойство evoting.snapshot.periodSeconds)
+    private static final long SNAPSHOT_PERIOD_SECONDS = Long.getLong("evoting.snapshot.periodSeconds", 60);
+
     public static void main(String[] args) {
         DataStorage dataStorage = new DataStorage();
+        Snapshotter snapshotter = new Snapshotter(dataStorage, SNAPSHOT_PERIOD_SECONDS, TimeUnit.SECONDS);
         VotingService votingService = new VotingService(dataStorage);
-        ConsoleUI consoleUI = new ConsoleUI(votingService);
+        ConsoleUI consoleUI = new ConsoleUI(votingService, snapshotter);
 
         consoleUI.start();
     }
@@ -0,0 +1,10 @@
+package com.evoting.service;
+
+/**
+ * Результат регистрации избирателя.
+ */
+public enum RegistrationResult {
+    REGISTERED,      // Избиратель зарегистрирован
+    ALREADY_EXISTS,  // Логин или СНИЛС уже заняты
+    NOT_SAVED        // Регистрацию не удалось сохранить на диске
+}
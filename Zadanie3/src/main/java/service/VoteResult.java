@@ -0,0 +1,12 @@
+package com.evoting.service;
+
+/**
+ * Результат попытки проголосовать.
+ */
+public enum VoteResult {
+    ACCEPTED,           // Голос принят
+    ELECTION_FINISHED,  // Голосование уже завершено
+    NOT_A_CANDIDATE,    // Кандидат не участвует в этом голосовании
+    ALREADY_VOTED,      // Избиратель уже голосовал в этом голосовании
+    NOT_SAVED           // Голос не удалось сохранить на диске
+}
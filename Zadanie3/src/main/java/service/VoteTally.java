@@ -0,0 +1,153 @@
+package com.evoting.service;
+
+import com.evoting.model.Voter;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Текущие итоги голосований: число голосов за каждого кандидата в целом,
+ * по городам и по возрастным группам. Счетчики обновляются при каждом принятом голосе,
+ * поэтому чтение результатов занимает O(кандидатов), а не перебор всех избирателей.
+ * Город и возрастная группа учитываются на момент голоса (или на момент пересчета при запуске)
+ * и запоминаются вместе с голосом: при удалении избирателя голос снимается с тех же групп,
+ * даже если с тех пор он переехал или перешел в другую возрастную группу.
+ * Счетчики - LongAdder, поэтому одновременные голоса не блокируют друг друга.
+ */
+public class VoteTally {
+    private final ConcurrentMap<UUID, ElectionTally> elections = new ConcurrentHashMap<>();
+
+    /**
+     * Пересчитывает итоги по голосам избирателей (при запуске приложения).
+     */
+    public void rebuild(Collection<Voter> voters) {
+        elections.clear();
+        for (Voter voter : voters) {
+            voter.getVotes().forEach((electionId, candidateId) -> record(voter, electionId, candidateId));
+        }
+    }
+
+    /**
+     * Учитывает принятый голос.
+     */
+    public void record(Voter voter, UUID electionId, UUID candidateId) {
+        elections.computeIfAbsent(electionId, id -> new ElectionTally()).add(voter, candidateId);
+    }
+
+    /**
+     * Убирает из итогов голоса удаленного избирателя.
+     */
+    public void remove(Voter voter) {
+        voter.getVotes().keySet().forEach(electionId -> {
+            ElectionTally tally = elections.get(electionId);
+            if (tally != null) {
+                tally.remove(voter.getId());
+            }
+        });
+    }
+
+    /**
+     * Число голосов за кандидатов (по id) в голосовании.
+     */
+    public Map<UUID, Long> getResults(UUID electionId) {
+        ElectionTally tally = elections.get(electionId);
+        return tally == null ? new HashMap<>() : snapshot(tally.total);
+    }
+
+    /**
+     * Число голосов за кандидатов среди избирателей группы (города или возрастной группы).
+     */
+    public Map<UUID, Long> getResults(UUID electionId, GroupingType groupingType, String group) {
+        ElectionTally tally = elections.get(electionId);
+        if (tally == null || groupingType == GroupingType.NONE) {
+            return getResults(electionId);
+        }
+        ConcurrentMap<UUID, LongAdder> counters = tally.groups(groupingType).get(group);
+        return counters == null ? new HashMap<>() : snapshot(counters);
+    }
+
+    /**
+     * Группы, в которых в голосовании есть хотя бы один учтенный голос.
+     */
+    public Set<String> getGroups(UUID electionId, GroupingType groupingType) {
+        ElectionTally tally = elections.get(electionId);
+        Set<String> groups = new HashSet<>();
+        if (tally != null && groupingType != GroupingType.NONE) {
+            tally.groups(groupingType).forEach((group, counters) -> {
+                if (!snapshot(counters).isEmpty()) groups.add(group);
+            });
+        }
+        return groups;
+    }
+
+    private static Map<UUID, Long> snapshot(Map<UUID, LongAdder> counters) {
+        Map<UUID, Long> result = new HashMap<>();
+        counters.forEach((candidateId, counter) -> {
+            long count = counter.sum();
+            if (count > 0) result.put(candidateId, count);
+        });
+        return result;
+    }
+
+    private static final class ElectionTally {
+        final ConcurrentMap<UUID, LongAdder> total = new ConcurrentHashMap<>();
+        final ConcurrentMap<String, ConcurrentMap<UUID, LongAdder>> byCity = new ConcurrentHashMap<>();
+        final ConcurrentMap<String, ConcurrentMap<UUID, LongAdder>> byAgeGroup = new ConcurrentHashMap<>();
+        // Учтенный голос каждого избирателя вместе с группами, в которые он засчитан
+        final ConcurrentMap<UUID, RecordedVote> recorded = new ConcurrentHashMap<>();
+
+        void add(Voter voter, UUID candidateId) {
+            RecordedVote vote = new RecordedVote(candidateId, voter.getCity(), voter.getAgeGroup());
+            if (recorded.putIfAbsent(voter.getId(), vote) == null) {
+                count(vote, 1);
+            }
+        }
+
+        void remove(UUID voterId) {
+            RecordedVote vote = recorded.remove(voterId);
+            if (vote != null) {
+                count(vote, -1);
+            }
+        }
+
+        ConcurrentMap<String, ConcurrentMap<UUID, LongAdder>> groups(GroupingType groupingType) {
+            return groupingType == GroupingType.BY_CITY ? byCity : byAgeGroup;
+        }
+
+        private void count(RecordedVote vote, long delta) {
+            increment(total, vote.candidateId, delta);
+            addToGroup(byCity, vote.city, vote.candidateId, delta);
+            addToGroup(byAgeGroup, vote.ageGroup, vote.candidateId, delta);
+        }
+
+        private static void addToGroup(ConcurrentMap<String, ConcurrentMap<UUID, LongAdder>> groups, String group,
+                                       UUID candidateId, long delta) {
+            if (group != null) {
+                increment(groups.computeIfAbsent(group, g -> new ConcurrentHashMap<>()), candidateId, delta);
+            }
+        }
+
+        private static void increment(ConcurrentMap<UUID, LongAdder> counters, UUID candidateId, long delta) {
+            counters.computeIfAbsent(candidateId, id -> new LongAdder()).add(delta);
+        }
+    }
+
+    private static final class RecordedVote {
+        final UUID candidateId;
+        final String city;
+        final String ageGroup;
+
+        RecordedVote(UUID candidateId, String city, String ageGroup) {
+            this.candidateId = candidateId;
+            this.city = city;
+            this.ageGroup = ageGroup;
+        }
+    }
+}
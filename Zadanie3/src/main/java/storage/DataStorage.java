@@ -1,181 +1,473 @@
-package com.evoting.storage;
-
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
-import com.evoting.model.*;
-import com.evoting.util.LocalDateAdapter;
-import com.evoting.util.LocalDateTimeAdapter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.lang.reflect.Type;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-public class DataStorage {
-    private static final String VOTERS_FILE = "voters.json";
-    private static final String STAFF_FILE = "staff.json";
-    private static final String ELECTIONS_FILE = "elections.json";
-
-    private static final Gson gson = new GsonBuilder()
-            .setPrettyPrinting()
-            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
-            .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
-            .create();
-
-    private List<User> allUsers;
-    private List<Election> elections;
-
-    public DataStorage() {
-        List<Voter> voters = loadVoters();
-        List<User> staff = new ArrayList<>();
-        this.allUsers = Stream.concat(voters.stream(), staff.stream()).collect(Collectors.toList());
-        this.elections = loadElections();
-        createDefaultUsersAndData();
-    }
-
-    /**
-     * Метод для создания тестовых пользователей и данных, если они отсутствуют.
-     * Он ничего не возвращает, только модифицирует поля класса.
-     */
-    private void createDefaultUsersAndData() { // <-- ИСПРАВЛЕНИЕ ЗДЕСЬ
-        // Проверяем и создаем администратора
-        if (this.allUsers.stream().noneMatch(u -> "admin".equals(u.getLogin()))) {
-            System.out.println("Администратор не найден. Создается пользователь: admin/admin");
-            this.allUsers.add(new Administrator("admin", "admin"));
-        }
-
-        // Проверяем и создаем ЦИК
-        if (this.allUsers.stream().noneMatch(u -> "cec1".equals(u.getLogin()))) {
-            System.out.println("Создается тестовый ЦИК: cec1/cec1");
-            this.allUsers.add(new CEC("cec1", "cec1"));
-        }
-
-        // Проверяем и создаем кандидатов
-        Candidate candidate1 = (Candidate) this.allUsers.stream()
-                .filter(u -> "kandidat_ivanov".equals(u.getLogin()))
-                .findFirst().orElse(null);
-        if (candidate1 == null) {
-            System.out.println("Создается тестовый кандидат: kandidat_ivanov/123");
-            candidate1 = new Candidate("kandidat_ivanov", "123", "Иванов Иван Иванович");
-            candidate1.setBiography("Опытный политик, обещает светлое будущее.");
-            candidate1.setDateOfBirth(LocalDate.of(1980, 5, 15));
-            this.allUsers.add(candidate1);
-        }
-
-        Candidate candidate2 = (Candidate) this.allUsers.stream()
-                .filter(u -> "kandidat_petrov".equals(u.getLogin()))
-                .findFirst().orElse(null);
-        if (candidate2 == null) {
-            System.out.println("Создается тестовый кандидат: kandidat_petrov/123");
-            candidate2 = new Candidate("kandidat_petrov", "123", "Петров Петр Петрович");
-            candidate2.setBiography("Молодой и амбициозный, выступает за перемены.");
-            candidate2.setDateOfBirth(LocalDate.of(1992, 8, 22));
-            this.allUsers.add(candidate2);
-        }
-
-        // Проверяем и создаем пользователей
-        if (this.allUsers.stream().noneMatch(u -> "voter_sidorov".equals(u.getLogin()))) {
-            System.out.println("Создается тестовый пользователь: voter_sidorov/pass из г. Москва");
-            this.allUsers.add(new Voter("voter_sidorov", "pass", "Сидоров Сидор Сидорович",
-                    LocalDate.of(1995, 1, 1), "12345678901", "Москва"));
-        }
-        if (this.allUsers.stream().noneMatch(u -> "voter_orlov".equals(u.getLogin()))) {
-            System.out.println("Создается тестовый пользователь: voter_orlov/pass из г. Санкт-Петербург");
-            this.allUsers.add(new Voter("voter_orlov", "pass", "Орлов Олег Олегович",
-                    LocalDate.of(1970, 3, 10), "98765432109", "Санкт-Петербург"));
-        }
-        if (this.allUsers.stream().noneMatch(u -> "voter_erofeev".equals(u.getLogin()))) {
-            System.out.println("Создается тестовый пользователь: voter_erofeev/pass из г. Москва");
-            this.allUsers.add(new Voter("voter_erofeev", "pass", "Ерофеев Елисей Елисеевич",
-                    LocalDate.of(2002, 11, 5), "55544433322", "Москва"));
-        }
-
-
-        // Создаем тестовое голосование, если его нет
-        if (this.elections.stream().noneMatch(e -> "Выборы Президента 2025".equals(e.getName()))) {
-            System.out.println("Создается тестовое голосование 'Выборы Президента 2025'");
-            Election election = new Election("Выборы Президента 2025", LocalDateTime.now().plusDays(30));
-            election.addCandidate(candidate1.getId());
-            election.addCandidate(candidate2.getId());
-            this.elections.add(election);
-        }
-
-        // Создаем завершенное голосование для проверки истории
-        if (this.elections.stream().noneMatch(e -> "Выборы в Парламент 2023".equals(e.getName()))) {
-            System.out.println("Создается тестовое завершенное голосование 'Выборы в Парламент 2023'");
-            Election pastElection = new Election("Выборы в Парламент 2023", LocalDateTime.now().minusDays(10));
-            pastElection.addCandidate(candidate1.getId());
-            this.elections.add(pastElection);
-        }
-    }
-
-
-    public List<User> getUsers() {
-        return allUsers;
-    }
-
-    public List<Election> getElections() {
-        return elections;
-    }
-
-    public void saveAllData() {
-        List<Voter> votersToSave = allUsers.stream()
-                .filter(u -> u.getRole() == Role.VOTER)
-                .map(u -> (Voter) u)
-                .collect(Collectors.toList());
-
-        List<User> staffToSave = allUsers.stream()
-                .filter(u -> u.getRole() != Role.VOTER)
-                .collect(Collectors.toList());
-
-        saveToFile(VOTERS_FILE, votersToSave);
-        saveToFile(STAFF_FILE, staffToSave);
-        saveToFile(ELECTIONS_FILE, elections);
-        System.out.println("Все данные успешно сохранены.");
-    }
-
-    private void saveToFile(String fileName, Object data) {
-        try (FileWriter writer = new FileWriter(fileName)) {
-            gson.toJson(data, writer);
-        } catch (IOException e) {
-            System.err.println("Ошибка при сохранении файла " + fileName + ": " + e.getMessage());
-        }
-    }
-
-    private List<Voter> loadVoters() {
-        File file = new File(VOTERS_FILE);
-        if (!file.exists()) {
-            return new ArrayList<>();
-        }
-        try (FileReader reader = new FileReader(file)) {
-            Type type = new TypeToken<ArrayList<Voter>>() {}.getType();
-            List<Voter> loadedData = gson.fromJson(reader, type);
-            return loadedData != null ? loadedData : new ArrayList<>();
-        } catch (IOException e) {
-            System.err.println("Ошибка при чтении файла " + VOTERS_FILE + ": " + e.getMessage());
-            return new ArrayList<>();
-        }
-    }
-
-    private List<Election> loadElections() {
-        File file = new File(ELECTIONS_FILE);
-        if (!file.exists()) {
-            return new ArrayList<>();
-        }
-        try (FileReader reader = new FileReader(file)) {
-            Type type = new TypeToken<ArrayList<Election>>() {}.getType();
-            List<Election> loadedElections = gson.fromJson(reader, type);
-            return loadedElections != null ? loadedElections : new ArrayList<>();
-        } catch (IOException e) {
-            System.err.println("Ошибка при чтении файла " + ELECTIONS_FILE + ": " + e.getMessage());
-            return new ArrayList<>();
-        }
-    }
+package com.evoting.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.evoting.model.*;
+import com.evoting.util.LocalDateAdapter;
+import com.evoting.util.LocalDateTimeAdapter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class DataStorage {
+    private static final String VOTERS_FILE = "voters.json";
+    private static final String STAFF_FILE = "staff.json";
+    private static final String ELECTIONS_FILE = "elections.json";
+    private static final String JOURNAL_FILE = "votes.journal";
+    // Наибольшая задержка групповой записи журнала голосов, мс (свойство evoting.journal.maxDelayMs)
+    private static final long JOURNAL_MAX_DELAY_MILLIS = Long.getLong("evoting.journal.maxDelayMs", 2);
+
+    private static final Gson gson = gsonBuilder().setPrettyPrinting().create();
+    // Для записей журнала: без отступов
+    private static final Gson compactGson = gsonBuilder().create();
+
+    // Каталог файлов данных и журнала
+    private final Path directory;
+    private final UserRepository users;
+    // Голосование читает список из многих потоков, а меняется он редко (создание выборов)
+    private final List<Election> elections;
+    // Голоса и регистрации избирателей после последнего снимка; null, если журнал открыть не удалось.
+    // Голосования, кандидаты и ЦИК в журнал не пишутся: при их создании снимок сохраняется сразу.
+    // Удаление пользователей сохраняется только следующим снимком
+    private final VoteJournal journal;
+    // Запись голоса в журнал и его появление в памяти не разделяются сменой сегмента журнала
+    private final ReadWriteLock journalLock = new ReentrantReadWriteLock();
+
+    public DataStorage() {
+        this(Paths.get(""));
+    }
+
+    /**
+     * Хранилище с файлами данных и журналом в каталоге directory.
+     */
+    public DataStorage(Path directory) {
+        this.directory = directory;
+        List<Voter> voters = loadVoters();
+        List<User> staff = loadStaff();
+        this.users = new UserRepository(Stream.concat(voters.stream(), staff.stream()).collect(Collectors.toList()));
+        this.elections = new CopyOnWriteArrayList<>(loadElections());
+        this.journal = openJournal();
+        createDefaultUsersAndData();
+    }
+
+    private static GsonBuilder gsonBuilder() {
+        return new GsonBuilder()
+                .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+                .registerTypeAdapter(LocalDate.class, new LocalDateAdapter());
+    }
+
+    /**
+     * Открывает журнал и применяет его поверх загруженных файлов: сначала избиратель
+     * регистрируется, потом голосует, поэтому записи применяются в порядке журнала.
+     * Записи, уже попавшие в voters.json, при повторном применении ничего не меняют.
+     * Голоса за голосование или кандидата, которых нет в загруженных данных, пропускаются.
+     */
+    private VoteJournal openJournal() {
+        int[] restoredVoters = new int[1];
+        int[] restoredVotes = new int[1];
+        int[] skippedVotes = new int[1];
+        Map<UUID, Election> electionsById = elections.stream()
+                .collect(Collectors.toMap(Election::getId, election -> election, (first, second) -> first));
+        try {
+            VoteJournal opened = new VoteJournal(directory.resolve(JOURNAL_FILE), JOURNAL_MAX_DELAY_MILLIS, new VoteJournal.Handler() {
+                @Override
+                public void vote(UUID voterId, UUID electionId, UUID candidateId) {
+                    Election election = electionsById.get(electionId);
+                    if (election == null || !election.getCandidateIds().contains(candidateId)) {
+                        skippedVotes[0]++;
+                        return;
+                    }
+                    User user = users.findById(voterId).orElse(null);
+                    if (user instanceof Voter && ((Voter) user).addVote(electionId, candidateId)) {
+                        restoredVotes[0]++;
+                    }
+                }
+
+                @Override
+                public void voter(String json) {
+                    Voter voter;
+                    try {
+                        voter = compactGson.fromJson(json, Voter.class);
+                    } catch (JsonParseException e) {
+                        voter = null;
+                    }
+                    if (voter == null) {
+                        System.err.println("Пропущена нечитаемая запись регистрации в журнале " + JOURNAL_FILE + ".");
+                    } else if (users.add(voter)) {
+                        restoredVoters[0]++;
+                    }
+                }
+            });
+            if (restoredVoters[0] > 0 || restoredVotes[0] > 0) {
+                System.out.println("Из журнала восстановлено избирателей: " + restoredVoters[0] + ", голосов: " + restoredVotes[0]);
+            }
+            if (skippedVotes[0] > 0) {
+                System.err.println("Пропущено голосов из журнала за неизвестное голосование или кандидата: " + skippedVotes[0]);
+            }
+            return opened;
+        } catch (IOException e) {
+            System.err.println("Ошибка при открытии журнала " + JOURNAL_FILE + ": " + e.getMessage()
+                    + ". Голоса будут сохранены только при выходе.");
+            return null;
+        }
+    }
+
+    /**
+     * Метод для создания тестовых пользователей и данных, если они отсутствуют.
+     * Он ничего не возвращает, только модифицирует поля класса.
+     */
+    private void createDefaultUsersAndData() { // <-- ИСПРАВЛЕНИЕ ЗДЕСЬ
+        boolean created = false;
+        // Проверяем и создаем администратора
+        if (!this.users.existsByLogin("admin")) {
+            System.out.println("Администратор не найден. Создается пользователь: admin/admin");
+            created |= this.users.add(new Administrator("admin", "admin"));
+        }
+
+        // Проверяем и создаем ЦИК
+        if (!this.users.existsByLogin("cec1")) {
+            System.out.println("Создается тестовый ЦИК: cec1/cec1");
+            created |= this.users.add(new CEC("cec1", "cec1"));
+        }
+
+        // Проверяем и создаем кандидатов
+        Candidate candidate1 = (Candidate) this.users.findByLogin("kandidat_ivanov").orElse(null);
+        if (candidate1 == null) {
+            System.out.println("Создается тестовый кандидат: kandidat_ivanov/123");
+            candidate1 = new Candidate("kandidat_ivanov", "123", "Иванов Иван Иванович");
+            candidate1.setBiography("Опытный политик, обещает светлое будущее.");
+            candidate1.setDateOfBirth(LocalDate.of(1980, 5, 15));
+            created |= this.users.add(candidate1);
+        }
+
+        Candidate candidate2 = (Candidate) this.users.findByLogin("kandidat_petrov").orElse(null);
+        if (candidate2 == null) {
+            System.out.println("Создается тестовый кандидат: kandidat_petrov/123");
+            candidate2 = new Candidate("kandidat_petrov", "123", "Петров Петр Петрович");
+            candidate2.setBiography("Молодой и амбициозный, выступает за перемены.");
+            candidate2.setDateOfBirth(LocalDate.of(1992, 8, 22));
+            created |= this.users.add(candidate2);
+        }
+
+        // Проверяем и создаем пользователей
+        if (!this.users.existsByLogin("voter_sidorov")) {
+            System.out.println("Создается тестовый пользователь: voter_sidorov/pass из г. Москва");
+            created |= this.users.add(new Voter("voter_sidorov", "pass", "Сидоров Сидор Сидорович",
+                    LocalDate.of(1995, 1, 1), "12345678901", "Москва"));
+        }
+        if (!this.users.existsByLogin("voter_orlov")) {
+            System.out.println("Создается тестовый пользователь: voter_orlov/pass из г. Санкт-Петербург");
+            created |= this.users.add(new Voter("voter_orlov", "pass", "Орлов Олег Олегович",
+                    LocalDate.of(1970, 3, 10), "98765432109", "Санкт-Петербург"));
+        }
+        if (!this.users.existsByLogin("voter_erofeev")) {
+            System.out.println("Создается тестовый пользователь: voter_erofeev/pass из г. Москва");
+            created |= this.users.add(new Voter("voter_erofeev", "pass", "Ерофеев Елисей Елисеевич",
+                    LocalDate.of(2002, 11, 5), "55544433322", "Москва"));
+        }
+
+
+        // Создаем тестовое голосование, если его нет
+        if (this.elections.stream().noneMatch(e -> "Выборы Президента 2025".equals(e.getName()))) {
+            System.out.println("Создается тестовое голосование 'Выборы Президента 2025'");
+            Election election = new Election("Выборы Президента 2025", LocalDateTime.now().plusDays(30));
+            election.addCandidate(candidate1.getId());
+            election.addCandidate(candidate2.getId());
+            this.elections.add(election);
+            created = true;
+        }
+
+        // Создаем завершенное голосование для проверки истории
+        if (this.elections.stream().noneMatch(e -> "Выборы в Парламент 2023".equals(e.getName()))) {
+            System.out.println("Создается тестовое завершенное голосование 'Выборы в Парламент 2023'");
+            Election pastElection = new Election("Выборы в Парламент 2023", LocalDateTime.now().minusDays(10));
+            pastElection.addCandidate(candidate1.getId());
+            this.elections.add(pastElection);
+            created = true;
+        }
+
+        // Созданные данные сразу сохраняются: иначе при следующем запуске они получат новые ID,
+        // и голоса за них из журнала окажутся ни к чему не привязаны
+        if (created) {
+            saveSnapshot();
+        }
+    }
+
+
+    /**
+     * Хранилище пользователей с индексами; все изменения списка пользователей идут через него.
+     */
+    public UserRepository getUserRepository() {
+        return users;
+    }
+
+    /**
+     * Копия списка всех пользователей в порядке добавления.
+     */
+    public List<User> getUsers() {
+        return users.findAll();
+    }
+
+    public List<Election> getElections() {
+        return elections;
+    }
+
+    /**
+     * Записывает принятый голос в журнал и, когда голос сохранен на диске, применяет его (publish).
+     * Смена сегмента журнала ждет применения, поэтому снимок содержит все голоса прежних сегментов.
+     * @return false, если записать голос не удалось; тогда publish не вызывается.
+     */
+    public boolean journalVote(UUID voterId, UUID electionId, UUID candidateId, Runnable publish) {
+        journalLock.readLock().lock();
+        try {
+            if (journal != null) {
+                journal.appendVote(voterId, electionId, candidateId);
+            }
+            publish.run();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Ошибка при записи в журнал " + JOURNAL_FILE + ": " + e.getMessage());
+            return false;
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Записывает регистрацию избирателя в журнал и, когда запись сохранена на диске, делает его видимым (publish).
+     * Хранилище пользователей при этом не заблокировано (логин и СНИЛС заранее зарезервированы),
+     * а смена сегмента журнала, как и для голосов, ждет publish - снимок не может пропустить избирателя.
+     * @return false, если записать не удалось; тогда publish не вызывается.
+     */
+    public boolean journalVoter(Voter voter, Runnable publish) {
+        journalLock.readLock().lock();
+        try {
+            if (journal != null) {
+                journal.appendVoter(compactGson.toJson(voter));
+            }
+            publish.run();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Ошибка при записи в журнал " + JOURNAL_FILE + ": " + e.getMessage());
+            return false;
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Закрывает журнал голосов (при выходе из приложения).
+     */
+    public void close() {
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Ошибка при закрытии журнала " + JOURNAL_FILE + ": " + e.getMessage());
+        }
+    }
+
+    public void saveAllData() {
+        if (saveSnapshot()) {
+            System.out.println("Все данные успешно сохранены.");
+        }
+    }
+
+    /**
+     * Сохраняет снимок пользователей и голосований, не останавливая прием голосов.
+     * Сначала журнал переходит на новый сегмент: голоса из прежних сегментов уже применены
+     * к данным в памяти (смена сегмента ждет их применения) и поэтому попадут в снимок. После успешной записи всех файлов
+     * прежние сегменты удаляются. Голоса, попавшие и в снимок, и в новый сегмент,
+     * при воспроизведении журнала ничего не меняют.
+     * @return true, если все файлы сохранены.
+     */
+    public synchronized boolean saveSnapshot() {
+        long segment = rotateJournal();
+
+        List<Voter> votersToSave = users.findByRole(Role.VOTER).stream()
+                .map(u -> (Voter) u)
+                .collect(Collectors.toList());
+
+        List<User> staffToSave = users.findAll().stream()
+                .filter(u -> u.getRole() != Role.VOTER)
+                .collect(Collectors.toList());
+
+        boolean saved = saveToFile(VOTERS_FILE, votersToSave)
+                & saveToFile(STAFF_FILE, staffToSave)
+                & saveToFile(ELECTIONS_FILE, elections);
+        // Переименования должны дойти до диска раньше, чем удалятся сегменты журнала
+        if (saved && segment > 0 && syncDirectory(directory.toAbsolutePath())) {
+            try {
+                journal.deleteSegmentsBefore(segment);
+            } catch (IOException e) {
+                System.err.println("Ошибка при удалении старых сегментов журнала " + JOURNAL_FILE + ": " + e.getMessage());
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * @return Номер нового сегмента журнала или -1, если журнала нет или сменить сегмент не удалось.
+     */
+    private long rotateJournal() {
+        if (journal == null) {
+            return -1;
+        }
+        journalLock.writeLock().lock();
+        try {
+            return journal.rotate();
+        } catch (IOException e) {
+            System.err.println("Ошибка при смене сегмента журнала " + JOURNAL_FILE + ": " + e.getMessage());
+            return -1;
+        } finally {
+            journalLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Сохраняет на диск записи каталога (результаты переименований).
+     * @return false, если каталог открыть удалось, а сохранить - нет.
+     */
+    private static boolean syncDirectory(Path directory) {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Каталог нельзя открыть как файл (Windows): там переименование фиксирует сама файловая система
+            return true;
+        }
+        try (FileChannel opened = channel) {
+            opened.force(true);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Ошибка при сохранении каталога " + directory + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Записывает данные во временный файл и атомарно заменяет им прежний,
+     * поэтому сбой во время записи не портит сохраненные данные.
+     */
+    private boolean saveToFile(String fileName, Object data) {
+        Path target = directory.resolve(fileName).toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp.toFile());
+             Writer writer = new OutputStreamWriter(out)) {
+            gson.toJson(data, writer);
+            writer.flush();
+            out.getFD().sync();
+        } catch (IOException | JsonIOException e) {
+            System.err.println("Ошибка при сохранении файла " + fileName + ": " + e.getMessage());
+            return false;
+        }
+        try {
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Ошибка при сохранении файла " + fileName + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private List<Voter> loadVoters() {
+        File file = directory.resolve(VOTERS_FILE).toFile();
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+        try (FileReader reader = new FileReader(file)) {
+            Type type = new TypeToken<ArrayList<Voter>>() {}.getType();
+            List<Voter> loadedData = gson.fromJson(reader, type);
+            return loadedData != null ? loadedData : new ArrayList<>();
+        } catch (IOException e) {
+            System.err.println("Ошибка при чтении файла " + VOTERS_FILE + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Загружает администраторов, ЦИК и кандидатов. В staff.json лежат пользователи разных
+     * классов, поэтому класс каждой записи выбирается по ее роли.
+     */
+    private List<User> loadStaff() {
+        File file = directory.resolve(STAFF_FILE).toFile();
+        List<User> staff = new ArrayList<>();
+        if (!file.exists()) {
+            return staff;
+        }
+        try (FileReader reader = new FileReader(file)) {
+            JsonArray records = gson.fromJson(reader, JsonArray.class);
+            if (records == null) {
+                return staff;
+            }
+            for (JsonElement record : records) {
+                JsonElement role = record.isJsonObject() ? record.getAsJsonObject().get("role") : null;
+                Class<? extends User> type = role != null && role.isJsonPrimitive() ? staffClass(role.getAsString()) : null;
+                if (type == null) {
+                    System.err.println("Пропущена запись с неизвестной ролью в файле " + STAFF_FILE + ".");
+                    continue;
+                }
+                staff.add(gson.fromJson(record, type));
+            }
+            return staff;
+        } catch (IOException | JsonParseException e) {
+            System.err.println("Ошибка при чтении файла " + STAFF_FILE + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private static Class<? extends User> staffClass(String role) {
+        switch (role) {
+            case "ADMINISTRATOR": return Administrator.class;
+            case "CEC": return CEC.class;
+            case "CANDIDATE": return Candidate.class;
+            default: return null;
+        }
+    }
+
+    private List<Election> loadElections() {
+        File file = directory.resolve(ELECTIONS_FILE).toFile();
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+        try (FileReader reader = new FileReader(file)) {
+            Type type = new TypeToken<ArrayList<Election>>() {}.getType();
+            List<Election> loadedElections = gson.fromJson(reader, type);
+            return loadedElections != null ? loadedElections : new ArrayList<>();
+        } catch (IOException e) {
+            System.err.println("Ошибка при чтении файла " + ELECTIONS_FILE + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.evoting.storage;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Периодически сохраняет снимок данных ({@link DataStorage#saveSnapshot()}) в фоновом потоке,
+ * чтобы при сбое терялось не больше данных, чем накоплено с последнего снимка,
+ * а журнал голосов не рос без ограничений.
+ */
+public class Snapshotter implements Closeable {
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "snapshotter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public Snapshotter(DataStorage storage, long period, TimeUnit unit) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                storage.saveSnapshot();
+            } catch (RuntimeException e) {
+                // Исключение отменило бы все следующие запуски
+                System.err.println("Ошибка при фоновом сохранении данных: " + e.getMessage());
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Останавливает фоновое сохранение; уже начатое сохранение завершается.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+    }
+}
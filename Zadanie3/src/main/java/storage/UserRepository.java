@@ -0,0 +1,203 @@
+package com.evoting.storage;
+
+import com.evoting.model.Role;
+import com.evoting.model.User;
+import com.evoting.model.Voter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Хранилище пользователей в памяти с хеш-индексами по id, логину (без учета регистра),
+ * СНИЛС и роли. Индексы обновляются при каждой вставке и удалении, поэтому вход в систему,
+ * поиск по id и проверки уникальности выполняются за O(1), а не перебором всех пользователей.
+ * Все методы синхронизированы: индексы всегда согласованы между собой.
+ */
+public class UserRepository {
+    private final Map<UUID, User> byId = new LinkedHashMap<>(); // Порядок добавления - для вывода списков
+    private final Map<String, User> byLogin = new HashMap<>();
+    private final Map<String, Voter> bySnils = new HashMap<>();
+    private final Map<Role, Map<UUID, User>> byRole = new EnumMap<>(Role.class);
+    // Логины и СНИЛС пользователей, которые добавляются, но еще не видны (см. reserve)
+    private final Set<String> reservedLogins = new HashSet<>();
+    private final Set<String> reservedSnils = new HashSet<>();
+
+    public UserRepository() {
+        for (Role role : Role.values()) {
+            byRole.put(role, new LinkedHashMap<>());
+        }
+    }
+
+    /**
+     * Создает хранилище из загруженных пользователей. Пользователь с уже занятым логином
+     * или СНИЛС (например, из старых файлов, где логины сравнивались с учетом регистра)
+     * сохраняется, но не попадает в соответствующий индекс - об этом выводится предупреждение.
+     */
+    public UserRepository(Collection<? extends User> users) {
+        this();
+        for (User user : users) {
+            if (byId.containsKey(user.getId())) {
+                System.err.println("Пропущен пользователь с повторяющимся ID: " + user.getId());
+                continue;
+            }
+            if (!isLoginFree(user) || !isSnilsFree(user)) {
+                System.err.println("Логин или СНИЛС пользователя " + user.getLogin() + " уже заняты, вход по нему недоступен.");
+            }
+            byId.put(user.getId(), user);
+            byRole.get(user.getRole()).put(user.getId(), user);
+            byLogin.putIfAbsent(loginKey(user.getLogin()), user);
+            if (user instanceof Voter && ((Voter) user).getSnils() != null) {
+                bySnils.putIfAbsent(((Voter) user).getSnils(), (Voter) user);
+            }
+        }
+    }
+
+    /**
+     * Добавляет пользователя, если его логин (без учета регистра) и СНИЛС еще не заняты.
+     * @return false, если пользователь не добавлен из-за повтора.
+     */
+    public synchronized boolean add(User user) {
+        if (byId.containsKey(user.getId()) || !isLoginFree(user) || !isSnilsFree(user)) {
+            return false;
+        }
+        index(user);
+        return true;
+    }
+
+    /**
+     * Резервирует логин и СНИЛС пользователя, который станет виден позже (после записи в журнал).
+     * Долгая запись идет без блокировки хранилища, поэтому вход и поиск не ждут диск,
+     * а занять те же логин или СНИЛС за это время никто не может.
+     * После резервирования нужно вызвать {@link #publish(User)} или {@link #cancel(User)}.
+     * @return false, если логин или СНИЛС уже заняты или зарезервированы.
+     */
+    public synchronized boolean reserve(User user) {
+        if (byId.containsKey(user.getId()) || !isLoginFree(user) || !isSnilsFree(user)) {
+            return false;
+        }
+        reservedLogins.add(loginKey(user.getLogin()));
+        if (snilsOf(user) != null) {
+            reservedSnils.add(snilsOf(user));
+        }
+        return true;
+    }
+
+    /**
+     * Делает видимым пользователя, зарезервированного через {@link #reserve(User)}.
+     */
+    public synchronized void publish(User user) {
+        cancel(user);
+        index(user);
+    }
+
+    /**
+     * Снимает резерв, если пользователь так и не был добавлен.
+     */
+    public synchronized void cancel(User user) {
+        reservedLogins.remove(loginKey(user.getLogin()));
+        if (snilsOf(user) != null) {
+            reservedSnils.remove(snilsOf(user));
+        }
+    }
+
+    private void index(User user) {
+        byId.put(user.getId(), user);
+        byRole.get(user.getRole()).put(user.getId(), user);
+        byLogin.put(loginKey(user.getLogin()), user);
+        if (snilsOf(user) != null) {
+            bySnils.put(snilsOf(user), (Voter) user);
+        }
+    }
+
+    /**
+     * Удаляет пользователя, если он найден и удовлетворяет условию.
+     * @return true, если пользователь удален.
+     */
+    public synchronized boolean remove(UUID id, Predicate<? super User> condition) {
+        User user = byId.get(id);
+        if (user == null || !condition.test(user)) {
+            return false;
+        }
+        byId.remove(id);
+        byRole.get(user.getRole()).remove(id);
+        byLogin.remove(loginKey(user.getLogin()), user);
+        if (user instanceof Voter && ((Voter) user).getSnils() != null) {
+            bySnils.remove(((Voter) user).getSnils(), user);
+        }
+        return true;
+    }
+
+    public synchronized boolean remove(UUID id) {
+        return remove(id, user -> true);
+    }
+
+    public synchronized Optional<User> findById(UUID id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    /**
+     * Поиск по логину без учета регистра.
+     */
+    public synchronized Optional<User> findByLogin(String login) {
+        return Optional.ofNullable(byLogin.get(loginKey(login)));
+    }
+
+    public synchronized Optional<Voter> findBySnils(String snils) {
+        return Optional.ofNullable(bySnils.get(snils));
+    }
+
+    public synchronized boolean existsByLogin(String login) {
+        return byLogin.containsKey(loginKey(login));
+    }
+
+    public synchronized boolean existsBySnils(String snils) {
+        return bySnils.containsKey(snils);
+    }
+
+    /**
+     * Пользователи с заданной ролью в порядке добавления (копия).
+     */
+    public synchronized List<User> findByRole(Role role) {
+        return new ArrayList<>(byRole.get(role).values());
+    }
+
+    /**
+     * Все пользователи в порядке добавления (копия).
+     */
+    public synchronized List<User> findAll() {
+        return new ArrayList<>(byId.values());
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    private boolean isLoginFree(User user) {
+        String key = loginKey(user.getLogin());
+        return !byLogin.containsKey(key) && !reservedLogins.contains(key);
+    }
+
+    private boolean isSnilsFree(User user) {
+        String snils = snilsOf(user);
+        return snils == null || !bySnils.containsKey(snils) && !reservedSnils.contains(snils);
+    }
+
+    private static String snilsOf(User user) {
+        return user instanceof Voter ? ((Voter) user).getSnils() : null;
+    }
+
+    private static String loginKey(String login) {
+        return login.toLowerCase(Locale.ROOT);
+    }
+}
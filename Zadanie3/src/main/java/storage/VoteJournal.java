@@ -0,0 +1,419 @@
+package com.evoting.storage;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал принятых голосов и регистраций избирателей (write-ahead log): каждая запись
+ * дописывается в конец файла вместе с длиной, типом и контрольной суммой CRC32.
+ * На диск пишет отдельный поток: он собирает записи, пришедшие за время maxDelay
+ * (но не более MAX_BATCH), записывает их одним вызовом и один раз вызывает force - групповая фиксация.
+ * Методы appendVote и appendVoter возвращают управление только после того, как запись оказалась на диске.
+ *
+ * Журнал состоит из сегментов "имя.N". После снимка данных ({@link #rotate()})
+ * голоса пишутся в новый сегмент, а старые, уже вошедшие в снимок, удаляются.
+ * При открытии все сегменты воспроизводятся по порядку; оборванная при сбое запись отбрасывается.
+ */
+public class VoteJournal implements Closeable {
+    private static final int MAGIC = 0x564F5445; // "VOTE"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+    // Запись: длина данных (int), тип (byte), данные, CRC32 длины, типа и данных
+    private static final int RECORD_OVERHEAD = 4 + 1 + 4;
+    private static final int MAX_PAYLOAD = 1 << 20;
+    private static final int MAX_BATCH = 4096;
+
+    private static final byte COMMAND = 0;
+    private static final byte VOTE = 1;   // Три UUID: избиратель, голосование, кандидат
+    private static final byte VOTER = 2;  // Зарегистрированный избиратель в JSON (UTF-8)
+
+    /**
+     * Получатель записей при воспроизведении журнала (в порядке записи).
+     */
+    public interface Handler {
+        void vote(UUID voterId, UUID electionId, UUID candidateId);
+
+        void voter(String json);
+    }
+
+    private final Path base;
+    private final long maxDelayNanos;
+    // Текущий сегмент; меняется только потоком записи
+    private FileChannel channel;
+    private long segment;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    // Буфер пачки; растет, если записи пачки в него не помещаются
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_BATCH * (RECORD_OVERHEAD + 48));
+    private final Thread writer;
+    private boolean closed;
+
+    /**
+     * Открывает (или создает) журнал и передает handler все сохраненные в нем записи.
+     * @param base Путь журнала; сегменты лежат рядом с ним под именами "имя.N".
+     * @param maxDelayMillis Наибольшее время, которое голос ждет попутчиков перед записью на диск.
+     */
+    public VoteJournal(Path base, long maxDelayMillis, Handler handler) throws IOException {
+        this.base = base.toAbsolutePath();
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMillis));
+        TreeMap<Long, Path> segments = listSegments();
+        for (Path file : segments.values()) {
+            try (FileChannel existing = openSegment(file)) {
+                replay(existing, file, handler);
+            }
+        }
+        // Дописываем последний сегмент; если сегментов нет - начинаем с первого
+        this.segment = segments.isEmpty() ? 1 : segments.lastKey();
+        this.channel = openSegment(segmentPath(segment));
+        try {
+            prepareForAppend(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.writer = new Thread(this::writeLoop, "vote-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Записывает голос в журнал и ждет, пока он не будет сохранен на диске.
+     */
+    public void appendVote(UUID voterId, UUID electionId, UUID candidateId) throws IOException {
+        ByteBuffer payload = ByteBuffer.allocate(48);
+        for (UUID id : new UUID[]{voterId, electionId, candidateId}) {
+            payload.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+        }
+        append(new Pending(VOTE, payload.array()));
+    }
+
+    /**
+     * Записывает в журнал регистрацию избирателя (в JSON) и ждет, пока она не будет сохранена на диске.
+     */
+    public void appendVoter(String json) throws IOException {
+        byte[] payload = json.getBytes(StandardCharsets.UTF_8);
+        if (payload.length > MAX_PAYLOAD) {
+            throw new IOException("Слишком большая запись журнала: " + payload.length + " байт.");
+        }
+        append(new Pending(VOTER, payload));
+    }
+
+    private void append(Pending pending) throws IOException {
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Журнал голосов закрыт.");
+            }
+            queue.add(pending);
+        }
+        try {
+            pending.done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Ожидание записи в журнал прервано.");
+        } catch (ExecutionException e) {
+            throw new IOException("Не удалось записать в журнал: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Переключает запись на новый сегмент. Все записи, для которых appendVote и appendVoter
+     * уже вернули управление, остаются в предыдущих сегментах.
+     * @return Номер нового сегмента: сегменты с меньшими номерами можно удалить
+     *         ({@link #deleteSegmentsBefore}), когда снимок, начатый после этого вызова, сохранен.
+     */
+    public long rotate() throws IOException {
+        Pending rotation = Pending.rotation();
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Журнал голосов закрыт.");
+            }
+            queue.add(rotation);
+        }
+        try {
+            return (Long) rotation.done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Ожидание смены сегмента журнала прервано.");
+        } catch (ExecutionException e) {
+            throw new IOException("Не удалось начать новый сегмент журнала: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Удаляет сегменты с номерами меньше segment.
+     */
+    public void deleteSegmentsBefore(long segment) throws IOException {
+        for (Path file : listSegments().headMap(segment).values()) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Дописывает уже принятые записи и закрывает файл журнала.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            queue.add(Pending.STOP);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private TreeMap<Long, Path> listSegments() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        String prefix = base.getFileName() + ".";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(base.getParent(), prefix + "*")) {
+            for (Path file : files) {
+                try {
+                    segments.put(Long.parseLong(file.getFileName().toString().substring(prefix.length())), file);
+                } catch (NumberFormatException e) {
+                    // Не сегмент журнала
+                }
+            }
+        }
+        return segments;
+    }
+
+    private Path segmentPath(long number) {
+        return base.resolveSibling(base.getFileName() + "." + number);
+    }
+
+    private static FileChannel openSegment(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Ставит позицию сегмента в конец; пустому сегменту записывает заголовок.
+     */
+    private static void prepareForAppend(FileChannel segment) throws IOException {
+        if (segment.size() < HEADER_SIZE) {
+            // Новый сегмент (или оборванный заголовок): записываем заголовок заново
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            segment.truncate(0);
+            segment.write(header, 0);
+            segment.force(true);
+        }
+        segment.position(segment.size());
+    }
+
+    /**
+     * Передает handler записи сегмента; поврежденный или оборванный хвост сегмента отрезается.
+     */
+    private static void replay(FileChannel segment, Path file, Handler handler) throws IOException {
+        long size = segment.size();
+        if (size < HEADER_SIZE) {
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            segment.read(header, header.position());
+        }
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Файл " + file.getFileName() + " не является журналом голосов или записан другой версией.");
+        }
+
+        segment.position(HEADER_SIZE);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(segment), 1 << 16));
+        long position = HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        byte[] payload = new byte[48];
+        while (position < size) {
+            int length;
+            byte type;
+            try {
+                length = in.readInt();
+                type = in.readByte();
+                if (length < 0 || length > MAX_PAYLOAD || (type == VOTE ? length != 48 : type != VOTER)) {
+                    break; // Запись повреждена: дальше сегменту доверять нельзя
+                }
+                if (payload.length < length) {
+                    payload = new byte[length];
+                }
+                in.readFully(payload, 0, length);
+                crc.reset();
+                crc.update(ByteBuffer.allocate(5).putInt(length).put(type).array());
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != in.readInt()) {
+                    break;
+                }
+            } catch (EOFException e) {
+                break; // Оборванная при сбое запись
+            }
+            if (type == VOTE) {
+                ByteBuffer ids = ByteBuffer.wrap(payload, 0, length);
+                handler.vote(new UUID(ids.getLong(), ids.getLong()), new UUID(ids.getLong(), ids.getLong()), new UUID(ids.getLong(), ids.getLong()));
+            } else {
+                handler.voter(new String(payload, 0, length, StandardCharsets.UTF_8));
+            }
+            position += RECORD_OVERHEAD + length;
+        }
+        if (position != size) {
+            System.err.println("Журнал голосов " + file.getFileName() + ": отброшено " + (size - position) + " байт поврежденных записей.");
+            segment.truncate(position);
+            segment.force(true);
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        while (true) {
+            batch.clear();
+            Pending command;
+            try {
+                command = collect(batch);
+            } catch (InterruptedException e) {
+                command = Pending.STOP;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+            if (command == Pending.STOP) {
+                return;
+            }
+            if (command != null) {
+                startSegment(command);
+            }
+        }
+    }
+
+    /**
+     * Собирает записи для одной фиксации.
+     * @return Команда (закрытие или смена сегмента), на которой сбор остановился, или null.
+     */
+    private Pending collect(List<Pending> batch) throws InterruptedException {
+        Pending next = queue.take();
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (!next.isCommand()) {
+            batch.add(next);
+            if (batch.size() == MAX_BATCH) {
+                return null;
+            }
+            long left = deadline - System.nanoTime();
+            next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                return null;
+            }
+        }
+        return next;
+    }
+
+    private void startSegment(Pending rotation) {
+        try {
+            FileChannel next = openSegment(segmentPath(segment + 1));
+            try {
+                prepareForAppend(next);
+            } catch (IOException e) {
+                next.close();
+                throw e;
+            }
+            // Все пачки предыдущего сегмента уже зафиксированы force
+            channel.close();
+            channel = next;
+            segment++;
+            rotation.done.complete(segment);
+        } catch (IOException e) {
+            rotation.done.completeExceptionally(e);
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        long start = -1;
+        try {
+            start = channel.position();
+            int bytes = 0;
+            for (Pending pending : batch) {
+                bytes += RECORD_OVERHEAD + pending.payload.length;
+            }
+            if (buffer.capacity() < bytes) {
+                buffer = ByteBuffer.allocateDirect(bytes);
+            }
+            buffer.clear();
+            CRC32 crc = new CRC32();
+            for (Pending pending : batch) {
+                int recordStart = buffer.position();
+                buffer.putInt(pending.payload.length).put(pending.type).put(pending.payload);
+                crc.reset();
+                crc.update(buffer.duplicate().flip().position(recordStart));
+                buffer.putInt((int) crc.getValue());
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            rollback(start);
+            for (Pending pending : batch) {
+                pending.done.completeExceptionally(e);
+            }
+            return;
+        }
+        for (Pending pending : batch) {
+            pending.done.complete(null);
+        }
+    }
+
+    private void rollback(long start) {
+        if (start < 0) return;
+        try {
+            channel.truncate(start);
+            channel.position(start);
+        } catch (IOException e) {
+            System.err.println("Журнал голосов: не удалось отменить неудачную запись: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Запись, ожидающая сохранения, или команда потоку записи (закрытие, смена сегмента).
+     */
+    private static final class Pending {
+        static final Pending STOP = rotation();
+
+        final byte type;
+        final byte[] payload;
+        // Для смены сегмента - номер нового сегмента
+        final CompletableFuture<Object> done = new CompletableFuture<>();
+
+        Pending(byte type, byte[] payload) {
+            this.type = type;
+            this.payload = payload;
+        }
+
+        static Pending rotation() {
+            return new Pending(COMMAND, null);
+        }
+
+        boolean isCommand() {
+            return type == COMMAND;
+        }
+    }
+}
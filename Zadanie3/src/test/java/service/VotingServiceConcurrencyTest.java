@@ -0,0 +1,116 @@
+package com.evoting.service;
+
+import com.evoting.model.Candidate;
+import com.evoting.model.Election;
+import com.evoting.model.Voter;
+import com.evoting.storage.DataStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочная проверка одновременного голосования: все потоки пытаются проголосовать
+ * за каждого избирателя, и каждый голос должен быть принят ровно один раз.
+ */
+class VotingServiceConcurrencyTest {
+    private static final int THREADS = 32;
+    private static final int VOTERS = 5_000;
+
+    @TempDir
+    Path directory;
+
+    private DataStorage storage;
+    private VotingService service;
+
+    @BeforeEach
+    void setUp() {
+        storage = new DataStorage(directory);
+        service = new VotingService(storage);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    @Test
+    void eachVoteIsAcceptedExactlyOnce() throws Exception {
+        Election election = service.createElection("Нагрузочное голосование", LocalDateTime.now().plusDays(1));
+        List<Candidate> candidates = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Candidate candidate = service.addCandidate("stress_candidate" + i, "pass", "Кандидат " + i);
+            assertNotNull(candidate);
+            service.addCandidateToElection(election, candidate);
+            candidates.add(candidate);
+        }
+        List<Voter> voters = new ArrayList<>();
+        for (int i = 0; i < VOTERS; i++) {
+            Voter voter = new Voter("stress_voter" + i, "pass", "Избиратель " + i,
+                    LocalDate.of(1950 + i % 50, 1, 1), "stress" + i, i % 2 == 0 ? "Москва" : "Казань");
+            assertEquals(RegistrationResult.REGISTERED, service.registerVoter(voter));
+            voters.add(voter);
+        }
+
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger alreadyVoted = new AtomicInteger();
+        AtomicInteger other = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < VOTERS; i++) {
+                        // Потоки голосуют за разных кандидатов: принят должен быть только один голос
+                        Candidate candidate = candidates.get((thread + i) % candidates.size());
+                        VoteResult result = service.vote(voters.get(i), election, candidate);
+                        if (result == VoteResult.ACCEPTED) accepted.incrementAndGet();
+                        else if (result == VoteResult.ALREADY_VOTED) alreadyVoted.incrementAndGet();
+                        else other.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(VOTERS, accepted.get());
+        assertEquals(VOTERS * (THREADS - 1), alreadyVoted.get());
+        assertEquals(0, other.get());
+        for (Voter voter : voters) {
+            assertEquals(1, voter.getVotes().size(), "голоса избирателя " + voter.getLogin());
+            assertTrue(voter.getVotes().containsKey(election.getId()));
+        }
+
+        long total = service.getElectionResults(election).values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(VOTERS, total);
+        long byCity = service.getElectionResults(election, GroupingType.BY_CITY, "Москва").values().stream().mapToLong(Long::longValue).sum()
+                + service.getElectionResults(election, GroupingType.BY_CITY, "Казань").values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(VOTERS, byCity);
+        // Счетчики, обновленные во время голосования, совпадают с пересчетом по избирателям
+        assertEquals(new VotingService(storage).getElectionResults(election), service.getElectionResults(election));
+    }
+}